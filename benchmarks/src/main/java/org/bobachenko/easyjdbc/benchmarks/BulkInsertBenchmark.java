@@ -0,0 +1,112 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert of many rows by multi-row VALUES against JDBC batches.
+ * Every iteration is a single insert of all rows into the empty table,
+ * the table is emptied after the iteration, which isn't measured.
+ *
+ * @author Maxim Bobachenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20, batchSize = 1)
+@Measurement(iterations = 50, batchSize = 1)
+@Fork(1)
+public class BulkInsertBenchmark extends JdbcState {
+
+    private static final String SQL = "INSERT INTO ORDERS (id, user_id, amount, note) VALUES (?, ?, ?, ?)";
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private List<Object[]> orders;
+
+    @Setup
+    public void setUp() throws SQLException {
+        open(0);
+        orders = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++)
+            orders.add(new Object[]{id, id % 100, id * 10, "order" + id});
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateOrders() {
+        jdbc.update("TRUNCATE TABLE ORDERS");
+    }
+
+    @Benchmark
+    public int easyInsertBulk() {
+        return jdbc.insertBulk(SQL, orders);
+    }
+
+    @Benchmark
+    public int[] easyUpdateBatch() {
+        return jdbc.updateBatch(SQL, orders);
+    }
+
+    @Benchmark
+    public int[] rawBatch() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+            for (Object[] order : orders) {
+                statement.setInt(1, (Integer) order[0]);
+                statement.setInt(2, (Integer) order[1]);
+                statement.setInt(3, (Integer) order[2]);
+                statement.setString(4, (String) order[3]);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        } finally {
+            release(connection);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-memory H2 database with the tables used by benchmarks.
+ *
+ * @author Maxim Bobachenko
+ */
+final class Database {
+
+    static final String DB_DRIVER = "org.h2.Driver";
+
+    private Database() {
+    }
+
+    /**
+     * Creates a new database with {@code rows} users and empty tables of events and orders
+     * @param name name of the database, it must be unique in the JVM
+     * @param rows number of users
+     * @return pooled data source of the database
+     */
+    static EasyPooledDataSource create(String name, int rows) throws SQLException {
+        EasyPooledDataSource dataSource = EasyPooledDataSource.builder(DB_DRIVER,
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "", "").maxSize(4).build();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE USERS(id INT PRIMARY KEY, name VARCHAR(64), " +
+                        "email VARCHAR(64), age INT)");
+                statement.execute("CREATE TABLE EVENTS(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(64))");
+                statement.execute("CREATE TABLE ORDERS(id INT PRIMARY KEY, user_id INT, amount INT, note VARCHAR(64))");
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO USERS VALUES (?, ?, ?, ?)")) {
+                for (int id = 1; id <= rows; id++) {
+                    statement.setInt(1, id);
+                    statement.setString(2, "user" + id);
+                    statement.setString(3, "user" + id + "@example.com");
+                    statement.setInt(4, 18 + id % 50);
+                    statement.addBatch();
+                    if (id % 1000 == 0)
+                        statement.executeBatch();
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Drops all tables and closes the pool
+     */
+    static void drop(EasyPooledDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        dataSource.close();
+    }
+}
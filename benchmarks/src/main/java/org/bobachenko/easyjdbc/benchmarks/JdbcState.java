@@ -0,0 +1,86 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.bobachenko.easyjdbc.EasyJdbc;
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.openjdk.jmh.annotations.Param;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Database of a benchmark, which is used through a data source or through one open connection.
+ * Raw JDBC baselines take connections by {@link #acquire()} so they pay the same price as EasyJdbc.
+ *
+ * @author Maxim Bobachenko
+ */
+public abstract class JdbcState {
+
+    /**
+     * How EasyJdbc gets connections
+     */
+    public enum Mode {
+        /**
+         * A connection is taken from the pool for every operation
+         */
+        DATASOURCE,
+        /**
+         * All operations use one open connection
+         */
+        CONNECTION
+    }
+
+    @Param({"DATASOURCE", "CONNECTION"})
+    public Mode mode;
+
+    EasyPooledDataSource dataSource;
+    Connection connection;
+    EasyJdbc jdbc;
+
+    void open(int rows) throws SQLException {
+        dataSource = Database.create(getClass().getSimpleName() + "_" + mode, rows);
+        if (mode == Mode.CONNECTION) {
+            connection = dataSource.getConnection();
+            jdbc = EasyJdbc.of(connection);
+        } else {
+            jdbc = EasyJdbc.of(dataSource);
+        }
+    }
+
+    void close() throws SQLException {
+        if (connection != null)
+            connection.close();
+        Database.drop(dataSource);
+    }
+
+    Connection acquire() throws SQLException {
+        return mode == Mode.CONNECTION ? connection : dataSource.getConnection();
+    }
+
+    void release(Connection connection) throws SQLException {
+        if (mode == Mode.DATASOURCE)
+            connection.close();
+    }
+}
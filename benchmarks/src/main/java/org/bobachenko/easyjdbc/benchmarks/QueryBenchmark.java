@@ -0,0 +1,149 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries which return one value, one row and a few rows as maps.
+ *
+ * @author Maxim Bobachenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class QueryBenchmark extends JdbcState {
+
+    private static final int ROWS = 1000;
+
+    private static final String SCALAR_SQL = "SELECT COUNT(*) FROM USERS WHERE age > ?";
+    private static final String OBJECT_SQL = "SELECT id, name, email, age FROM USERS WHERE id = ?";
+    private static final String ASSOC_SQL = "SELECT id, name, email, age FROM USERS WHERE id BETWEEN ? AND ?";
+
+    private int id;
+
+    @Setup
+    public void setUp() throws SQLException {
+        open(ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        close();
+    }
+
+    private int nextId() {
+        id = id % ROWS + 1;
+        return id;
+    }
+
+    @Benchmark
+    public Optional<Long> easyQueryScalar() {
+        return jdbc.queryScalar(SCALAR_SQL, Long.class, 40);
+    }
+
+    @Benchmark
+    public long rawQueryScalar() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(SCALAR_SQL)) {
+            statement.setInt(1, 40);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Benchmark
+    public Optional<User> easyQueryObject() {
+        return jdbc.queryObject(OBJECT_SQL, User.MAPPER, nextId());
+    }
+
+    @Benchmark
+    public User rawQueryObject() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(OBJECT_SQL)) {
+            statement.setInt(1, nextId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? User.MAPPER.map(resultSet, 1) : null;
+            }
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> easyQueryAssoc() {
+        int from = nextId();
+        return jdbc.queryAssoc(ASSOC_SQL, from, from + 9);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> rawQueryAssoc() throws SQLException {
+        int from = nextId();
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(ASSOC_SQL)) {
+            statement.setInt(1, from);
+            statement.setInt(2, from + 9);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columns = metaData.getColumnCount();
+                List<Map<String, Object>> rows = new ArrayList<>();
+                while (resultSet.next()) {
+                    Map<String, Object> row = new HashMap<>();
+                    for (int i = 1; i <= columns; i++)
+                        row.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+                    rows.add(row);
+                }
+                return rows;
+            }
+        } finally {
+            release(connection);
+        }
+    }
+}
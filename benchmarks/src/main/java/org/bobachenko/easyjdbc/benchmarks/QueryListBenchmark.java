@@ -0,0 +1,121 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of the whole table to a list of objects and to a list of maps.
+ *
+ * @author Maxim Bobachenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class QueryListBenchmark extends JdbcState {
+
+    private static final String SQL = "SELECT id, name, email, age FROM USERS";
+
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        open(rows);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        close();
+    }
+
+    @Benchmark
+    public List<User> easyQueryList() {
+        return jdbc.queryList(SQL, User.MAPPER);
+    }
+
+    @Benchmark
+    public List<User> rawQueryList() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            List<User> users = new ArrayList<>();
+            int rowNumber = 0;
+            while (resultSet.next())
+                users.add(User.MAPPER.map(resultSet, ++rowNumber));
+            return users;
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> easyQueryAssoc() {
+        return jdbc.queryAssoc(SQL);
+    }
+
+    /**
+     * Maps rows as the library did before rows shared their column names
+     */
+    @Benchmark
+    public List<Map<String, Object>> treeMapQueryAssoc() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                Map<String, Object> row = new TreeMap<>();
+                for (int i = 1; i <= metaData.getColumnCount(); i++)
+                    row.putIfAbsent(metaData.getColumnName(i), resultSet.getObject(i));
+                rows.add(row);
+            }
+            return rows;
+        } finally {
+            release(connection);
+        }
+    }
+}
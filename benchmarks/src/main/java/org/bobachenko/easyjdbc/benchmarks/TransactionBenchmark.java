@@ -0,0 +1,112 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.bobachenko.easyjdbc.EasyTransaction;
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction of two updates. {@code EasyTransaction} is created by a data source,
+ * so there is only the data source mode.
+ *
+ * @author Maxim Bobachenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private static final String DEBIT_SQL = "UPDATE USERS SET age = age - 1 WHERE id = ?";
+    private static final String CREDIT_SQL = "UPDATE USERS SET age = age + 1 WHERE id = ?";
+
+    private EasyPooledDataSource dataSource;
+    private int id;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = Database.create(getClass().getSimpleName(), ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        Database.drop(dataSource);
+    }
+
+    private int nextId() {
+        id = id % (ROWS - 1) + 1;
+        return id;
+    }
+
+    @Benchmark
+    public void easyTransaction() {
+        int from = nextId();
+        EasyTransaction.of(dataSource).run(jdbc -> {
+            jdbc.update(DEBIT_SQL, from);
+            jdbc.update(CREDIT_SQL, from + 1);
+        }).commit();
+    }
+
+    @Benchmark
+    public void rawTransaction() throws SQLException {
+        int from = nextId();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(DEBIT_SQL)) {
+                    statement.setInt(1, from);
+                    statement.executeUpdate();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(CREDIT_SQL)) {
+                    statement.setInt(1, from + 1);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts with a generated key and updates of one row.
+ *
+ * @author Maxim Bobachenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class UpdateBenchmark extends JdbcState {
+
+    private static final int ROWS = 1000;
+
+    private static final String CREATE_SQL = "INSERT INTO EVENTS(name) VALUES (?)";
+    private static final String UPDATE_SQL = "UPDATE USERS SET age = ? WHERE id = ?";
+
+    private int id;
+
+    @Setup
+    public void setUp() throws SQLException {
+        open(ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncateEvents() throws SQLException {
+        jdbc.update("TRUNCATE TABLE EVENTS");
+    }
+
+    private int nextId() {
+        id = id % ROWS + 1;
+        return id;
+    }
+
+    @Benchmark
+    public Optional<Long> easyCreate() {
+        return jdbc.create(CREATE_SQL, Long.class, "event");
+    }
+
+    @Benchmark
+    public long rawCreate() throws SQLException {
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(CREATE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, "event");
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Benchmark
+    public int easyUpdate() {
+        int userId = nextId();
+        return jdbc.update(UPDATE_SQL, 18 + userId % 50, userId);
+    }
+
+    @Benchmark
+    public int rawUpdate() throws SQLException {
+        int userId = nextId();
+        Connection connection = acquire();
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+            statement.setInt(1, 18 + userId % 50);
+            statement.setInt(2, userId);
+            return statement.executeUpdate();
+        } finally {
+            release(connection);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
+import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Asynchronous interface to use JDBC easily.
+ * Every operation of {@link EasyJdbc} is executed by a dedicated executor and its result is returned
+ * as {@link CompletableFuture}. The number of concurrent operations and the number of waiting operations
+ * are limited. If the limit is reached, the returned future is completed with {@link RejectedExecutionException}.
+ *
+ * Lazy streams aren't supported because they would hold a connection in the caller's thread,
+ * use {@code forEachRow} instead.
+ * @author Maxim Bobachenko
+ */
+public interface AsyncEasyJdbc extends AutoCloseable {
+
+    /**
+     * Executes several operations one after another by one task of the executor.
+     * @param work a function that has a EasyJdbc object to use it for execute your queries
+     * @return result of the function
+     */
+    <T> CompletableFuture<T> execute(Function<EasyJdbc, T> work);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryResult(String, ResultMapper, Object...)}
+     */
+    <T> CompletableFuture<Optional<T>> queryResult(String sql, ResultMapper<T> mapper, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryScalar(String, Class, Object...)}
+     */
+    <T> CompletableFuture<Optional<T>> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryLong(String, Object...)}
+     */
+    CompletableFuture<OptionalLong> queryLong(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryInt(String, Object...)}
+     */
+    CompletableFuture<OptionalInt> queryInt(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryDouble(String, Object...)}
+     */
+    CompletableFuture<OptionalDouble> queryDouble(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryLongArray(String, Object...)}
+     */
+    CompletableFuture<long[]> queryLongArray(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryObject(String, RowMapper, Object...)}
+     */
+    <T> CompletableFuture<Optional<T>> queryObject(String sql, RowMapper<T> mapper, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryAssoc(String, Object...)}
+     */
+    CompletableFuture<List<Map<String, Object>>> queryAssoc(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryList(String, RowMapper, Object...)}
+     */
+    <T> CompletableFuture<List<T>> queryList(String sql, RowMapper<T> mapper, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#queryColumns(String, Object...)}
+     */
+    CompletableFuture<ColumnarResult> queryColumns(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#forEachRow(String, RowCallback, Object...)}.
+     * The callback is called by the thread of the executor.
+     */
+    CompletableFuture<Integer> forEachRow(String sql, RowCallback callback, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#forEachRow(String, int, RowCallback, Object...)}.
+     * The callback is called by the thread of the executor.
+     */
+    CompletableFuture<Integer> forEachRow(String sql, int fetchSize, RowCallback callback, Object... params);
+
+    /**
+     * Asynchronous version of
+     * {@link EasyJdbc#queryPartitioned(String, String, long, long, int, RowMapper, Object...)}.
+     * The first partition is run by the thread of the executor, others by threads of partitions.
+     */
+    <T> CompletableFuture<List<T>> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                                    RowMapper<T> mapper, Object... params);
+
+    /**
+     * Asynchronous version of
+     * {@link EasyJdbc#forEachRowPartitioned(String, String, long, long, int, RowCallback, Object...)}.
+     * The first partition is run by the thread of the executor, others by threads of partitions.
+     */
+    CompletableFuture<Integer> forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                                     RowCallback callback, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#create(String, Class, Object...)}
+     */
+    <T> CompletableFuture<Optional<T>> create(String sql, Class<T> typeOfNotCompositePrimaryKey, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#create(String, KeyMapper, Object...)}
+     */
+    <T> CompletableFuture<Optional<T>> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#createBatch(String, Iterable, Class)}
+     */
+    <T> CompletableFuture<List<T>> createBatch(String sql, Iterable<Object[]> rows,
+                                               Class<T> typeOfNotCompositePrimaryKey);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#createBatch(String, Iterable, KeyMapper)}
+     */
+    <T> CompletableFuture<List<T>> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#update(String, Object...)}
+     */
+    CompletableFuture<Integer> update(String sql, Object... params);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#updateBatch(String, Iterable)}
+     */
+    CompletableFuture<int[]> updateBatch(String sql, Iterable<Object[]> rows);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#updateBatch(String, Iterable, int)}
+     */
+    CompletableFuture<int[]> updateBatch(String sql, Iterable<Object[]> rows, int batchSize);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#updateBatch(String, Collection, ParameterMapper)}
+     */
+    <T> CompletableFuture<int[]> updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#updateBatch(String, Collection, ParameterMapper, int)}
+     */
+    <T> CompletableFuture<int[]> updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper,
+                                             int batchSize);
+
+    /**
+     * Stops accepting operations. Operations which were accepted are completed.
+     */
+    @Override
+    void close();
+
+    /**
+     * Settings of the executor for a DataSource.
+     * If it's {@link org.bobachenko.easyjdbc.datasource.EasyPooledDataSource}, the number of concurrent
+     * operations is equal to the size of the pool by default.
+     * @param dataSource instance of DataSource class
+     */
+    static AsyncEasyJdbcImpl.Builder builder(DataSource dataSource) {
+        return AsyncEasyJdbcImpl.builder(dataSource);
+    }
+
+    /**
+     * Settings of the executor for an EasyJdbc object. It must be safe to use it by many threads,
+     * so don't use EasyJdbc which is created for one Connection.
+     * @param jdbc object which executes queries
+     */
+    static AsyncEasyJdbcImpl.Builder builder(EasyJdbc jdbc) {
+        return AsyncEasyJdbcImpl.builder(jdbc);
+    }
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#insertBulk(String, Iterable)}
+     */
+    CompletableFuture<Integer> insertBulk(String sql, Iterable<Object[]> rows);
+
+    /**
+     * Asynchronous version of {@link EasyJdbc#insertBulk(String, Iterable, int)}
+     */
+    CompletableFuture<Integer> insertBulk(String sql, Iterable<Object[]> rows, int maxParameters);
+}
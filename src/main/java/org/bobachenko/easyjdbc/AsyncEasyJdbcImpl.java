@@ -0,0 +1,409 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
+import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous wrapper of EasyJdbc.
+ *
+ * Operations are executed by a fixed number of platform threads, or by virtual threads on Java 21 and later.
+ * In both cases no more than {@code threads} operations are executed concurrently,
+ * so set it to the size of the connection pool. No more than {@code queueCapacity} operations wait
+ * for their turn, next operations are rejected.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class AsyncEasyJdbcImpl implements AsyncEasyJdbc {
+
+    private static final Logger logger = Logger.getLogger(AsyncEasyJdbcImpl.class.getName());
+
+    private final EasyJdbc jdbc;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int capacity;
+    private final boolean virtualThreads;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private AsyncEasyJdbcImpl(Builder builder) {
+        this.jdbc = builder.jdbc;
+        this.capacity = builder.threads + builder.queueCapacity;
+
+        ExecutorService virtualExecutor = builder.virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.permits = new Semaphore(builder.threads, true);
+            this.virtualThreads = true;
+        } else {
+            // the queue isn't bounded by itself, the number of pending operations is limited before submission
+            AtomicInteger number = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "easy-jdbc-async-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.permits = null;
+            this.virtualThreads = false;
+        }
+    }
+
+    static Builder builder(DataSource dataSource) {
+        if (dataSource == null)
+            throw new IllegalArgumentException("The dataSource parameter cannot be null.");
+        Builder builder = new Builder(EasyJdbc.of(dataSource));
+        if (dataSource instanceof EasyPooledDataSource)
+            builder.threads(((EasyPooledDataSource) dataSource).getMaxSize());
+        return builder;
+    }
+
+    static Builder builder(EasyJdbc jdbc) {
+        return new Builder(jdbc);
+    }
+
+    /**
+     * @return the number of operations which wait for a thread or a permit
+     */
+    public int getQueueDepth() {
+        return Math.max(0, pending.get() - active.get());
+    }
+
+    /**
+     * @return the number of operations which are being executed
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of completed operations, successful or not
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of rejected operations
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return true if operations are executed by virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(Function<EasyJdbc, T> work) {
+        if (work == null)
+            throw new IllegalArgumentException("Work cannot be null.");
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Too many database operations are waiting for execution."));
+            return future;
+        }
+
+        try {
+            executor.execute(() -> run(work, future));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(Function<EasyJdbc, T> work, CompletableFuture<T> future) {
+        boolean acquired = false;
+        try {
+            // operation could be cancelled while it was waiting
+            if (future.isDone())
+                return;
+            if (permits != null) {
+                permits.acquire();
+                acquired = true;
+            }
+            active.incrementAndGet();
+            try {
+                future.complete(work.apply(jdbc));
+            } finally {
+                active.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            if (acquired)
+                permits.release();
+            pending.decrementAndGet();
+            completed.increment();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> queryResult(String sql, ResultMapper<T> mapper, Object... params) {
+        return execute(jdbc -> jdbc.queryResult(sql, mapper, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params) {
+        return execute(jdbc -> jdbc.queryScalar(sql, typeOfReturnValue, params));
+    }
+
+    @Override
+    public CompletableFuture<OptionalLong> queryLong(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryLong(sql, params));
+    }
+
+    @Override
+    public CompletableFuture<OptionalInt> queryInt(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryInt(sql, params));
+    }
+
+    @Override
+    public CompletableFuture<OptionalDouble> queryDouble(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryDouble(sql, params));
+    }
+
+    @Override
+    public CompletableFuture<long[]> queryLongArray(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryLongArray(sql, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> queryObject(String sql, RowMapper<T> mapper, Object... params) {
+        return execute(jdbc -> jdbc.queryObject(sql, mapper, params));
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> queryAssoc(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryAssoc(sql, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> queryList(String sql, RowMapper<T> mapper, Object... params) {
+        return execute(jdbc -> jdbc.queryList(sql, mapper, params));
+    }
+
+    @Override
+    public CompletableFuture<ColumnarResult> queryColumns(String sql, Object... params) {
+        return execute(jdbc -> jdbc.queryColumns(sql, params));
+    }
+
+    @Override
+    public CompletableFuture<Integer> forEachRow(String sql, RowCallback callback, Object... params) {
+        return execute(jdbc -> jdbc.forEachRow(sql, callback, params));
+    }
+
+    @Override
+    public CompletableFuture<Integer> forEachRow(String sql, int fetchSize, RowCallback callback, Object... params) {
+        return execute(jdbc -> jdbc.forEachRow(sql, fetchSize, callback, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> queryPartitioned(String sql, String keyColumn, long min, long max,
+                                                           int partitions, RowMapper<T> mapper, Object... params) {
+        return execute(jdbc -> jdbc.queryPartitioned(sql, keyColumn, min, max, partitions, mapper, params));
+    }
+
+    @Override
+    public CompletableFuture<Integer> forEachRowPartitioned(String sql, String keyColumn, long min, long max,
+                                                            int partitions, RowCallback callback, Object... params) {
+        return execute(jdbc -> jdbc.forEachRowPartitioned(sql, keyColumn, min, max, partitions, callback, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> create(String sql, Class<T> typeOfNotCompositePrimaryKey,
+                                                     Object... params) {
+        return execute(jdbc -> jdbc.create(sql, typeOfNotCompositePrimaryKey, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params) {
+        return execute(jdbc -> jdbc.create(sql, compositeKeyMapper, params));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> createBatch(String sql, Iterable<Object[]> rows,
+                                                      Class<T> typeOfNotCompositePrimaryKey) {
+        return execute(jdbc -> jdbc.createBatch(sql, rows, typeOfNotCompositePrimaryKey));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> createBatch(String sql, Iterable<Object[]> rows,
+                                                      KeyMapper<T> compositeKeyMapper) {
+        return execute(jdbc -> jdbc.createBatch(sql, rows, compositeKeyMapper));
+    }
+
+    @Override
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        return execute(jdbc -> jdbc.update(sql, params));
+    }
+
+    @Override
+    public CompletableFuture<int[]> updateBatch(String sql, Iterable<Object[]> rows) {
+        return execute(jdbc -> jdbc.updateBatch(sql, rows));
+    }
+
+    @Override
+    public CompletableFuture<int[]> updateBatch(String sql, Iterable<Object[]> rows, int batchSize) {
+        return execute(jdbc -> jdbc.updateBatch(sql, rows, batchSize));
+    }
+
+    @Override
+    public <T> CompletableFuture<int[]> updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper) {
+        return execute(jdbc -> jdbc.updateBatch(sql, items, mapper));
+    }
+
+    @Override
+    public <T> CompletableFuture<int[]> updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper,
+                                                    int batchSize) {
+        return execute(jdbc -> jdbc.updateBatch(sql, items, mapper, batchSize));
+    }
+
+    @Override
+    public CompletableFuture<Integer> insertBulk(String sql, Iterable<Object[]> rows) {
+        return execute(jdbc -> jdbc.insertBulk(sql, rows));
+    }
+
+    @Override
+    public CompletableFuture<Integer> insertBulk(String sql, Iterable<Object[]> rows, int maxParameters) {
+        return execute(jdbc -> jdbc.insertBulk(sql, rows, maxParameters));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates executor of virtual threads by reflection because the library is compiled for Java 8
+     * @return the executor or null if virtual threads aren't available
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1.") || Integer.parseInt(version.split("\\.")[0]) < 21)
+            return null;
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Virtual threads aren't available, platform threads are used.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Settings of the executor
+     */
+    public static final class Builder {
+        private final EasyJdbc jdbc;
+        private int threads = 10;
+        private int queueCapacity = 1000;
+        private boolean virtualThreads = true;
+
+        private Builder(EasyJdbc jdbc) {
+            if (jdbc == null)
+                throw new IllegalArgumentException("The jdbc parameter cannot be null.");
+            this.jdbc = jdbc;
+        }
+
+        /**
+         * @param threads the maximum number of concurrent operations. Default is 10
+         *                or the maximum size of {@link EasyPooledDataSource}.
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the maximum number of operations waiting for execution. Default is 1000.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param virtualThreads use virtual threads if they are available. Default is true.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * @return a new asynchronous wrapper
+         */
+        public AsyncEasyJdbcImpl build() {
+            if (threads <= 0)
+                throw new IllegalArgumentException("The number of threads must be positive.");
+            if (queueCapacity < 0)
+                throw new IllegalArgumentException("The capacity of the queue cannot be negative.");
+            return new AsyncEasyJdbcImpl(this);
+        }
+    }
+}
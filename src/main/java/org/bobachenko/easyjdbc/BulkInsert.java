@@ -0,0 +1,172 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-row INSERT template which is rewritten to insert many rows by one statement:
+ * {@code INSERT INTO t (a, b) VALUES (?, ?)} becomes {@code INSERT INTO t (a, b) VALUES (?, ?), (?, ?), ...}.
+ * SQL of every number of rows is built once and kept with the template.
+ *
+ * @author Maxim Bobachenko
+ */
+final class BulkInsert {
+
+    /**
+     * The limit of the cache protects it from SQL which is built with inlined values
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    private static final Map<String, BulkInsert> cache = new ConcurrentHashMap<>();
+
+    private final String prefix;
+    private final String row;
+    private final String suffix;
+    private final int parameters;
+    private final Map<Integer, String> blocks = new ConcurrentHashMap<>();
+
+    private BulkInsert(String prefix, String row, String suffix, int parameters) {
+        this.prefix = prefix;
+        this.row = row;
+        this.suffix = suffix;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Provides the compiled template from the cache or compiles it
+     * @param sql INSERT with one VALUES row
+     */
+    static BulkInsert of(String sql) {
+        BulkInsert bulk = cache.get(sql);
+        if (bulk == null) {
+            bulk = compile(sql);
+            // the full cache is started again, so templates which are used now are cached
+            if (cache.size() >= MAX_CACHE_SIZE)
+                cache.clear();
+            cache.putIfAbsent(sql, bulk);
+        }
+        return bulk;
+    }
+
+    /**
+     * The number of parameters of one row
+     */
+    int getParameters() {
+        return parameters;
+    }
+
+    /**
+     * SQL which inserts the number of rows
+     */
+    String getSql(int rows) {
+        if (rows == 1)
+            return prefix + row + suffix;
+        return blocks.computeIfAbsent(rows, count -> {
+            StringBuilder sql = new StringBuilder(prefix.length() + suffix.length() + count * (row.length() + 2));
+            sql.append(prefix).append(row);
+            for (int i = 1; i < count; i++)
+                sql.append(", ").append(row);
+            return sql.append(suffix).toString();
+        });
+    }
+
+    static BulkInsert compile(String sql) {
+        if (sql == null)
+            throw new IllegalArgumentException("SQL cannot be null.");
+
+        int values = -1;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int end = SqlScanner.skip(sql, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+            if (c == '?')
+                throw wrongTemplate(sql);
+            if (sql.regionMatches(true, i, "VALUES", 0, 6) && isBoundary(sql, i - 1) && isBoundary(sql, i + 6)) {
+                values = i + 6;
+                break;
+            }
+            i++;
+        }
+        if (values < 0)
+            throw wrongTemplate(sql);
+
+        int open = values;
+        while (open < length && Character.isWhitespace(sql.charAt(open)))
+            open++;
+        if (open == length || sql.charAt(open) != '(')
+            throw wrongTemplate(sql);
+
+        // the row ends at the matching parenthesis, parameters are counted on the way
+        int depth = 0;
+        int parameters = 0;
+        int close = -1;
+        for (i = open; i < length && close < 0; ) {
+            char c = sql.charAt(i);
+            int end = SqlScanner.skip(sql, i);
+            if (end == i) {
+                end = i + 1;
+                if (c == '(')
+                    depth++;
+                else if (c == ')' && --depth == 0)
+                    close = i;
+                else if (c == '?')
+                    parameters++;
+                else if (c == ':' && i + 1 < length && sql.charAt(i + 1) == ':')
+                    // a cast like ?::jsonb
+                    end = i + 2;
+                else if (c == ':' && i + 1 < length && Character.isLetter(sql.charAt(i + 1)))
+                    throw new IllegalArgumentException("Named parameters aren't supported by bulk insert: " + sql);
+            }
+            i = end;
+        }
+        if (close < 0)
+            throw wrongTemplate(sql);
+
+        String suffix = sql.substring(close + 1);
+        String trimmed = suffix.trim();
+        if (trimmed.startsWith(",") || suffix.indexOf('?') >= 0)
+            throw wrongTemplate(sql);
+        if (trimmed.equals(";"))
+            suffix = "";
+
+        return new BulkInsert(sql.substring(0, values) + " ", sql.substring(open, close + 1), suffix, parameters);
+    }
+
+    private static boolean isBoundary(String sql, int index) {
+        return index < 0 || index >= sql.length() || !Character.isLetterOrDigit(sql.charAt(index))
+                && sql.charAt(index) != '_';
+    }
+
+    private static IllegalArgumentException wrongTemplate(String sql) {
+        return new IllegalArgumentException("Bulk insert needs INSERT ... VALUES (...) with parameters " +
+                "only in one row: " + sql);
+    }
+}
@@ -0,0 +1,472 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Result of a query which is stored by columns instead of rows.
+ * Values of numeric columns are kept in arrays of primitives without boxing:
+ * <ul>
+ *     <li>BIGINT as {@code long[]}</li>
+ *     <li>INTEGER, SMALLINT and TINYINT as {@code int[]}</li>
+ *     <li>DOUBLE, FLOAT and REAL as {@code double[]}</li>
+ *     <li>BOOLEAN and BIT as {@code boolean[]}</li>
+ *     <li>other types, including DECIMAL and NUMERIC, as {@code Object[]}</li>
+ * </ul>
+ * NULL values of primitive columns are stored as zeros or false and marked in the null bitmap of the column.
+ *
+ * Columns are numbered from 0 and rows are numbered from 0.
+ * Getters return the arrays themselves without copying, their length is equal to the number of rows.
+ * @author Maxim Bobachenko
+ */
+public final class ColumnarResult {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String[] names;
+    private final Column[] columns;
+    private final Map<String, Integer> indexes;
+    private final int rowCount;
+
+    private ColumnarResult(String[] names, Column[] columns, int rowCount) {
+        this.names = names;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.indexes = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++)
+            indexes.putIfAbsent(names[i], i);
+    }
+
+    /**
+     * Reads all rows of the result set
+     */
+    static ColumnarResult read(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        Column[] columns = new Column[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnLabel(i + 1);
+            columns[i] = Column.of(metaData.getColumnType(i + 1), INITIAL_CAPACITY);
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        int row = 0;
+        while (resultSet.next()) {
+            if (row == capacity) {
+                capacity = capacity * 2;
+                for (Column column : columns)
+                    column.grow(capacity);
+            }
+            for (int i = 0; i < columnCount; i++)
+                columns[i].read(resultSet, i + 1, row);
+            row++;
+        }
+
+        for (Column column : columns)
+            column.trim(row);
+
+        return new ColumnarResult(names, columns, row);
+    }
+
+    /**
+     * The number of rows of the result
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * The number of columns of the result
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Label of the column
+     * @param column number of the column from 0
+     */
+    public String getColumnName(int column) {
+        return names[checkColumn(column)];
+    }
+
+    /**
+     * Number of the column with the given label.
+     * If labels are repeated, the first column is returned.
+     * @param name label of the column like it's returned by the driver
+     * @return number of the column from 0 or -1 if there isn't such column
+     */
+    public int getColumnIndex(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Values of BIGINT column
+     * @param column number of the column from 0
+     */
+    public long[] getLongs(int column) {
+        return column(column, LongColumn.class, "long").values;
+    }
+
+    /**
+     * Values of BIGINT column
+     * @param name label of the column
+     */
+    public long[] getLongs(String name) {
+        return getLongs(columnIndex(name));
+    }
+
+    /**
+     * Values of INTEGER, SMALLINT or TINYINT column
+     * @param column number of the column from 0
+     */
+    public int[] getInts(int column) {
+        return column(column, IntColumn.class, "int").values;
+    }
+
+    /**
+     * Values of INTEGER, SMALLINT or TINYINT column
+     * @param name label of the column
+     */
+    public int[] getInts(String name) {
+        return getInts(columnIndex(name));
+    }
+
+    /**
+     * Values of DOUBLE, FLOAT or REAL column
+     * @param column number of the column from 0
+     */
+    public double[] getDoubles(int column) {
+        return column(column, DoubleColumn.class, "double").values;
+    }
+
+    /**
+     * Values of DOUBLE, FLOAT or REAL column
+     * @param name label of the column
+     */
+    public double[] getDoubles(String name) {
+        return getDoubles(columnIndex(name));
+    }
+
+    /**
+     * Values of BOOLEAN or BIT column
+     * @param column number of the column from 0
+     */
+    public boolean[] getBooleans(int column) {
+        return column(column, BooleanColumn.class, "boolean").values;
+    }
+
+    /**
+     * Values of BOOLEAN or BIT column
+     * @param name label of the column
+     */
+    public boolean[] getBooleans(String name) {
+        return getBooleans(columnIndex(name));
+    }
+
+    /**
+     * Values of column which isn't stored as primitives
+     * @param column number of the column from 0
+     */
+    public Object[] getObjects(int column) {
+        return column(column, ObjectColumn.class, "object").values;
+    }
+
+    /**
+     * Values of column which isn't stored as primitives
+     * @param name label of the column
+     */
+    public Object[] getObjects(String name) {
+        return getObjects(columnIndex(name));
+    }
+
+    /**
+     * Null bitmap of the column. An element is true if the value of the row is NULL.
+     * @param column number of the column from 0
+     */
+    public boolean[] getNulls(int column) {
+        return columns[checkColumn(column)].nulls;
+    }
+
+    /**
+     * Checks if the value is NULL
+     * @param row number of the row from 0
+     * @param column number of the column from 0
+     */
+    public boolean isNull(int row, int column) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range.");
+        return columns[checkColumn(column)].nulls[row];
+    }
+
+    /**
+     * Value of the cell as an object. Primitives are boxed.
+     * @param row number of the row from 0
+     * @param column number of the column from 0
+     * @return value or null if the value is NULL
+     */
+    public Object getObject(int row, int column) {
+        return isNull(row, column) ? null : columns[column].get(row);
+    }
+
+    private int checkColumn(int column) {
+        if (column < 0 || column >= columns.length)
+            throw new IndexOutOfBoundsException("Column " + column + " is out of range.");
+        return column;
+    }
+
+    private int columnIndex(String name) {
+        int index = getColumnIndex(name);
+        if (index < 0)
+            throw new IllegalArgumentException("There isn't column " + name + " in the result.");
+        return index;
+    }
+
+    private <C extends Column> C column(int column, Class<C> type, String typeName) {
+        Column result = columns[checkColumn(column)];
+        if (!type.isInstance(result))
+            throw new IllegalStateException(String.format("Column %s isn't stored as %s values.",
+                    names[column], typeName));
+        return type.cast(result);
+    }
+
+    /**
+     * Values of one column with the null bitmap. Arrays grow while the cursor is being read.
+     */
+    private abstract static class Column {
+        boolean[] nulls;
+
+        Column(int capacity) {
+            nulls = new boolean[capacity];
+        }
+
+        static Column of(int sqlType, int capacity) {
+            switch (sqlType) {
+                case Types.BIGINT:
+                    return new LongColumn(capacity);
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    return new IntColumn(capacity);
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                case Types.REAL:
+                    return new DoubleColumn(capacity);
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    return new BooleanColumn(capacity);
+                default:
+                    return new ObjectColumn(capacity);
+            }
+        }
+
+        abstract void read(ResultSet resultSet, int index, int row) throws SQLException;
+
+        abstract Object get(int row);
+
+        void grow(int capacity) {
+            nulls = Arrays.copyOf(nulls, capacity);
+        }
+
+        void trim(int size) {
+            if (nulls.length != size)
+                nulls = Arrays.copyOf(nulls, size);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getLong(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            if (values.length != size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        int[] values;
+
+        IntColumn(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getInt(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            if (values.length != size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values;
+
+        DoubleColumn(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getDouble(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            if (values.length != size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+        boolean[] values;
+
+        BooleanColumn(int capacity) {
+            super(capacity);
+            values = new boolean[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getBoolean(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            if (values.length != size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        Object[] values;
+
+        ObjectColumn(int capacity) {
+            super(capacity);
+            values = new Object[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getObject(index);
+            nulls[row] = values[row] == null;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            if (values.length != size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+}
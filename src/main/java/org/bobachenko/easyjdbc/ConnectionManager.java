@@ -22,6 +22,8 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 */
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.StatementCacheStatistics;
+
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -39,9 +41,17 @@ interface ConnectionManager {
     Connection getConnection() throws SQLException;
 
     /**
-     * Closes connection
+     * Closes connection which was provided by this manager
      *
+     * @param connection connection to close
      * @throws SQLException
      */
-    void closeConnection() throws SQLException;
+    void closeConnection(Connection connection) throws SQLException;
+
+    /**
+     * Provides statistics of the cache of prepared statements of connections
+     *
+     * @return statistics
+     */
+    StatementCacheStatistics getStatementCacheStatistics();
 }
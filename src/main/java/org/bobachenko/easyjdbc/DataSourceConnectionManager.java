@@ -22,42 +22,63 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 */
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.bobachenko.easyjdbc.datasource.StatementCacheStatistics;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 
 /**
  * Connection manager for data source.
- * It keeps connections as thread local for multithreading access.
+ * Every operation gets its own connection, so the manager can be used by many threads
+ * and by many operations of one thread at the same time (e.g. lazy streams).
  * @author Maxim Bobachenko
  */
 class DataSourceConnectionManager implements ConnectionManager {
 
+    /**
+     * Number of concurrent operations of one call if the data source isn't the pool of the library
+     */
+    static final int DEFAULT_PARALLELISM = 10;
+
     private final DataSource dataSource;
-    private final ThreadLocal<Connection> connectionHoler = new ThreadLocal<>();
+    private final StatementCacheStatistics statementCacheStatistics;
 
     DataSourceConnectionManager(DataSource dataSource) {
         this.dataSource = dataSource;
+        // statements can be cached only by a pool, because other connections are closed after every operation
+        this.statementCacheStatistics = dataSource instanceof EasyPooledDataSource ?
+                ((EasyPooledDataSource) dataSource).getStatementCacheStatistics() : new StatementCacheStatistics();
     }
 
     /**
-     * Get connection from datasource and store it to thread-local variable.
+     * Get connection from datasource.
      */
     @Override
     public Connection getConnection() throws SQLException {
-        Connection connection = dataSource.getConnection();
-        connectionHoler.set(connection);
-        return connection;
+        return dataSource.getConnection();
     }
 
     /**
-     * Get connection from map and close it.
+     * Close the connection of the operation.
      */
     @Override
-    public void closeConnection() throws SQLException {
-        Connection con = connectionHoler.get();
-        if (con != null)
-            con.close();
-        connectionHoler.remove();
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
+    }
+
+    /**
+     * The maximum number of connections one call can use at the same time, e.g. partitions of a query.
+     * It's the maximum size of {@link EasyPooledDataSource} or {@link #DEFAULT_PARALLELISM} for other data sources.
+     */
+    int getParallelism() {
+        return dataSource instanceof EasyPooledDataSource ?
+                ((EasyPooledDataSource) dataSource).getMaxSize() : DEFAULT_PARALLELISM;
     }
 }
@@ -0,0 +1,53 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link EasyJdbc} of a transaction which can defer updates.
+ *
+ * Deferred updates are queued and sent later as JDBC batches: consecutive updates with the same SQL
+ * make one batch. The queue is flushed before any other operation of the transaction, so
+ * reads see deferred updates, and before commit. If the transaction is rolled back,
+ * futures of updates which haven't been sent are cancelled.
+ *
+ * @author Maxim Bobachenko
+ */
+public interface DeferredEasyJdbc extends EasyJdbc {
+
+    /**
+     * Queues a query to modify the data by the "INSERT", "UPDATE" or "DELETE" keywords.
+     * @param sql a query to execute
+     * @param params parameters for the query
+     * @return future of the number of rows affected, it's completed when the query is sent.
+     * If the batch fails, futures of it and of all updates queued after it fail with the same exception.
+     */
+    CompletableFuture<Integer> updateDeferred(String sql, Object... params);
+
+    /**
+     * Sends all queued updates now
+     */
+    void flush();
+}
@@ -0,0 +1,206 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
+import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * {@link DeferredEasyJdbc} of a transaction. Updates are queued in the connection manager,
+ * which flushes them when the connection is requested by any other operation.
+ *
+ * @author Maxim Bobachenko
+ */
+final class DeferredEasyJdbcImpl implements DeferredEasyJdbc {
+
+    private final EasyJdbcImpl jdbc;
+    private final TransactionalConnectionManager connectionManager;
+
+    DeferredEasyJdbcImpl(TransactionalConnectionManager connectionManager) {
+        this.jdbc = new EasyJdbcImpl(connectionManager);
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public CompletableFuture<Integer> updateDeferred(String sql, Object... params) {
+        if (sql == null)
+            throw new IllegalArgumentException("SQL cannot be null.");
+        return connectionManager.defer(sql, params);
+    }
+
+    @Override
+    public void flush() {
+        connectionManager.flush();
+    }
+
+    @Override
+    public <T> Optional<T> queryResult(String sql, ResultMapper<T> mapper, Object... params) {
+        return jdbc.queryResult(sql, mapper, params);
+    }
+
+    @Override
+    public <T> Optional<T> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params) {
+        return jdbc.queryScalar(sql, typeOfReturnValue, params);
+    }
+
+    @Override
+    public OptionalLong queryLong(String sql, Object... params) {
+        return jdbc.queryLong(sql, params);
+    }
+
+    @Override
+    public OptionalInt queryInt(String sql, Object... params) {
+        return jdbc.queryInt(sql, params);
+    }
+
+    @Override
+    public OptionalDouble queryDouble(String sql, Object... params) {
+        return jdbc.queryDouble(sql, params);
+    }
+
+    @Override
+    public long[] queryLongArray(String sql, Object... params) {
+        return jdbc.queryLongArray(sql, params);
+    }
+
+    @Override
+    public <T> Optional<T> queryObject(String sql, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryObject(sql, mapper, params);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryAssoc(String sql, Object... params) {
+        return jdbc.queryAssoc(sql, params);
+    }
+
+    @Override
+    public <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryList(sql, mapper, params);
+    }
+
+    @Override
+    public ColumnarResult queryColumns(String sql, Object... params) {
+        return jdbc.queryColumns(sql, params);
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryStream(sql, mapper, params);
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryStream(sql, fetchSize, mapper, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, RowCallback callback, Object... params) {
+        return jdbc.forEachRow(sql, callback, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, int fetchSize, RowCallback callback, Object... params) {
+        return jdbc.forEachRow(sql, fetchSize, callback, params);
+    }
+
+    @Override
+    public <T> List<T> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                        RowMapper<T> mapper, Object... params) {
+        return jdbc.queryPartitioned(sql, keyColumn, min, max, partitions, mapper, params);
+    }
+
+    @Override
+    public int forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                     RowCallback callback, Object... params) {
+        return jdbc.forEachRowPartitioned(sql, keyColumn, min, max, partitions, callback, params);
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, Class<T> typeOfNotCompositePrimaryKey, Object... params) {
+        return jdbc.create(sql, typeOfNotCompositePrimaryKey, params);
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params) {
+        return jdbc.create(sql, compositeKeyMapper, params);
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, Class<T> typeOfNotCompositePrimaryKey) {
+        return jdbc.createBatch(sql, rows, typeOfNotCompositePrimaryKey);
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper) {
+        return jdbc.createBatch(sql, rows, compositeKeyMapper);
+    }
+
+    @Override
+    public int update(String sql, Object... params) {
+        return jdbc.update(sql, params);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows) {
+        return jdbc.updateBatch(sql, rows);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows, int batchSize) {
+        return jdbc.updateBatch(sql, rows, batchSize);
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows) {
+        return jdbc.insertBulk(sql, rows);
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows, int maxParameters) {
+        return jdbc.insertBulk(sql, rows, maxParameters);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper) {
+        return jdbc.updateBatch(sql, items, mapper);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper, int batchSize) {
+        return jdbc.updateBatch(sql, items, mapper, batchSize);
+    }
+}
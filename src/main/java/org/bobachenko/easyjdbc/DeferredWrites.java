@@ -0,0 +1,116 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queue of deferred updates of a transaction. Consecutive updates with the same SQL are grouped
+ * to be sent as one batch. Groups are sent in the order of queueing, so the order of updates is kept.
+ *
+ * @author Maxim Bobachenko
+ */
+final class DeferredWrites {
+
+    private List<Group> groups = new ArrayList<>();
+
+    CompletableFuture<Integer> add(String sql, Object[] params) {
+        Group last = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+        if (last == null || !last.sql.equals(sql)) {
+            last = new Group(sql);
+            groups.add(last);
+        }
+
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        // parameters are copied, because the caller may reuse the array or named parameters until the update is sent
+        last.rows.add(params == null ? new Object[0] : copyOf(params));
+        last.futures.add(future);
+        return future;
+    }
+
+    private static Object[] copyOf(Object[] params) {
+        Object[] copy = params.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] instanceof NamedParameters)
+                copy[i] = ((NamedParameters) copy[i]).copy();
+        }
+        return copy;
+    }
+
+    boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * Sends all groups by the EasyJdbc. The queue is emptied before sending, so operations
+     * of the EasyJdbc don't flush it again.
+     */
+    void flush(EasyJdbc jdbc) {
+        List<Group> pending = groups;
+        groups = new ArrayList<>();
+
+        for (int i = 0; i < pending.size(); i++) {
+            Group group = pending.get(i);
+            try {
+                if (group.rows.size() == 1) {
+                    group.futures.get(0).complete(jdbc.update(group.sql, group.rows.get(0)));
+                } else {
+                    int[] counts = jdbc.updateBatch(group.sql, group.rows);
+                    for (int j = 0; j < counts.length; j++)
+                        group.futures.get(j).complete(counts[j]);
+                }
+            } catch (RuntimeException e) {
+                for (int j = i; j < pending.size(); j++)
+                    for (CompletableFuture<Integer> future : pending.get(j).futures)
+                        future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Cancels futures of all queued updates and empties the queue
+     */
+    void cancel() {
+        for (Group group : groups)
+            for (CompletableFuture<Integer> future : group.futures)
+                future.cancel(false);
+        groups = new ArrayList<>();
+    }
+
+    /**
+     * Consecutive updates with the same SQL
+     */
+    private static final class Group {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        Group(String sql) {
+            this.sql = sql;
+        }
+    }
+}
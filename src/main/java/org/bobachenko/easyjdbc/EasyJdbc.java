@@ -23,18 +23,29 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 package org.bobachenko.easyjdbc;
 
 import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
 import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
 import org.bobachenko.easyjdbc.mapper.RowMapper;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
 
 /**
  * Interface to use JDBC easily.
  *
+ * Parameters of queries are positional values for {@code ?} placeholders.
+ * Queries with named placeholders like {@code :name} take {@link NamedParameters} as the only parameter,
+ * and batches take it as the only element of every row.
+ *
  * @author Maxim Bobachenko
  */
 public interface EasyJdbc {
@@ -58,6 +69,39 @@ public interface EasyJdbc {
      */
     <T> Optional<T> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params);
 
+    /**
+     * Executes a query and returns the value of the first field of the first row as long without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    OptionalLong queryLong(String sql, Object... params);
+
+    /**
+     * Executes a query and returns the value of the first field of the first row as int without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    OptionalInt queryInt(String sql, Object... params);
+
+    /**
+     * Executes a query and returns the value of the first field of the first row as double without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    OptionalDouble queryDouble(String sql, Object... params);
+
+    /**
+     * Executes a query and returns values of the first field of all rows as long without boxing.
+     * NULL values are returned as 0.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return values in the order of rows
+     */
+    long[] queryLongArray(String sql, Object... params);
+
     /**
      * Executes a query and creates an object that has a data of the single row of the result.
      * @param sql a query to execute
@@ -70,6 +114,7 @@ public interface EasyJdbc {
     /**
      * Executes a query and creates a list of maps that have a data of all rows of the result.
      * Every map in the list contains string keys with the names like columns before keyword FROM in the query.
+     * Keys are sorted by names. Maps of one result share their keys until a map adds or removes a key.
      * @param sql a query to execute
      * @param params parameters for the query with correspondent types, if it's needed
      */
@@ -83,6 +128,90 @@ public interface EasyJdbc {
      */
     <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params);
 
+    /**
+     * Executes a query and reads all rows of the result into columns.
+     * Values of numeric columns are stored in arrays of primitives chosen by the types of the columns.
+     * @param sql a query to execute
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return columnar result of the query
+     */
+    ColumnarResult queryColumns(String sql, Object... params);
+
+    /**
+     * Executes a query and returns a lazy stream of objects that have a data of rows of the result.
+     * Rows are fetched from the database by default fetch size while the stream is being consumed.
+     * The connection and the cursor are released when the stream is closed or fully consumed,
+     * therefore use the stream in try-with-resources block.
+     * @param sql a query to execute
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    <T> Stream<T> queryStream(String sql, RowMapper<T> mapper, Object... params);
+
+    /**
+     * Executes a query and returns a lazy stream of objects that have a data of rows of the result.
+     * The connection and the cursor are released when the stream is closed or fully consumed,
+     * therefore use the stream in try-with-resources block.
+     * @param sql a query to execute
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    <T> Stream<T> queryStream(String sql, int fetchSize, RowMapper<T> mapper, Object... params);
+
+    /**
+     * Executes a query and passes rows of the result to the callback one by one without collecting them.
+     * Rows are fetched from the database by default fetch size.
+     * @param sql a query to execute
+     * @param callback class or lambda to process a row. It returns false to stop processing
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return the number of processed rows
+     */
+    int forEachRow(String sql, RowCallback callback, Object... params);
+
+    /**
+     * Executes a query and passes rows of the result to the callback one by one without collecting them.
+     * @param sql a query to execute
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param callback class or lambda to process a row. It returns false to stop processing
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return the number of processed rows
+     */
+    int forEachRow(String sql, int fetchSize, RowCallback callback, Object... params);
+
+    /**
+     * Executes a query split by ranges of a numeric key. Every partition selects rows with the key between
+     * its bounds and runs on its own connection concurrently with others. No more partitions run at the same time
+     * than the maximum size of {@link org.bobachenko.easyjdbc.datasource.EasyPooledDataSource}, or 10 for other
+     * data sources. With one connection, e.g. in a transaction, partitions run one by one.
+     * @param sql a query to execute, it must select the key column
+     * @param keyColumn name of the key column
+     * @param min the minimum value of the key, inclusive
+     * @param max the maximum value of the key, inclusive
+     * @param partitions the number of partitions
+     * @param mapper class or lambda to map each row of a result set, it's called by many threads.
+     *               Numbers of rows start from zero in every partition
+     * @param params parameters for the query
+     * @return rows of all partitions in the order of ranges
+     */
+    <T> List<T> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                 RowMapper<T> mapper, Object... params);
+
+    /**
+     * Executes a query split by ranges of a numeric key and passes rows to the callback without keeping them.
+     * Partitions run concurrently as in {@link #queryPartitioned}.
+     * @param sql a query to execute, it must select the key column
+     * @param keyColumn name of the key column
+     * @param min the minimum value of the key, inclusive
+     * @param max the maximum value of the key, inclusive
+     * @param partitions the number of partitions
+     * @param callback thread-safe class or lambda to process each row, false stops all partitions
+     * @param params parameters for the query
+     * @return the number of processed rows
+     */
+    int forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                              RowCallback callback, Object... params);
+
     /**
      * Creates a new row by "INSERT" statement and returns value of a primary key
      * @param sql a query with the INSERT keyword to execute
@@ -101,6 +230,32 @@ public interface EasyJdbc {
      */
     <T> Optional<T> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params);
 
+    /**
+     * Creates many rows by "INSERT" statement as JDBC batches and returns values of primary keys
+     * in the order of rows. If the driver doesn't support batch updates or generated keys,
+     * rows are inserted one by one by the same statement.
+     * The first batch of every driver checks that it returns keys of all rows of a batch, if it doesn't,
+     * the batch is rolled back and rows of this and later calls are inserted one by one.
+     * @param sql a query with the INSERT keyword to execute
+     * @param rows parameters for the query, one array per row
+     * @param typeOfNotCompositePrimaryKey type of primary key
+     * @return values of primary keys
+     */
+    <T> List<T> createBatch(String sql, Iterable<Object[]> rows, Class<T> typeOfNotCompositePrimaryKey);
+
+    /**
+     * Creates many rows by "INSERT" statement as JDBC batches and returns objects that contain the data
+     * of the composite primary keys in the order of rows. If the driver doesn't support batch updates
+     * or generated keys, rows are inserted one by one by the same statement.
+     * The first batch of every driver checks that it returns keys of all rows of a batch, if it doesn't,
+     * the batch is rolled back and rows of this and later calls are inserted one by one.
+     * @param sql a query with the INSERT keyword to execute
+     * @param rows parameters for the query, one array per row
+     * @param compositeKeyMapper class or lambda to map the value of the composite key
+     * @return objects that contain a data of the composite primary keys
+     */
+    <T> List<T> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper);
+
     /**
      * Executes a query to modify the data by the "UPDATE" or "DELETE" keywords.
      * @param sql a query to execute
@@ -109,6 +264,62 @@ public interface EasyJdbc {
      */
     int update(String sql, Object... params);
 
+    /**
+     * Executes a query to modify the data for many rows as JDBC batches.
+     * The statement is prepared once and batches are sent by default size.
+     * @param sql a query to execute
+     * @param rows parameters for the query, one array per row
+     * @return the number of rows affected for every row
+     */
+    int[] updateBatch(String sql, Iterable<Object[]> rows);
+
+    /**
+     * Executes a query to modify the data for many rows as JDBC batches.
+     * @param sql a query to execute
+     * @param rows parameters for the query, one array per row
+     * @param batchSize the maximum number of rows in one batch
+     * @return the number of rows affected for every row
+     */
+    int[] updateBatch(String sql, Iterable<Object[]> rows, int batchSize);
+
+    /**
+     * Inserts many rows by statements with multi-row VALUES. The single-row template
+     * {@code INSERT INTO t (a, b) VALUES (?, ?)} is rewritten to insert blocks of rows, so one statement
+     * inserts up to 1000 rows and has at most 2000 parameters.
+     * @param sql INSERT with one row of VALUES
+     * @param rows parameters for the template, one array per row
+     * @return the number of inserted rows
+     */
+    int insertBulk(String sql, Iterable<Object[]> rows);
+
+    /**
+     * Inserts many rows by statements with multi-row VALUES.
+     * @param sql INSERT with one row of VALUES
+     * @param rows parameters for the template, one array per row
+     * @param maxParameters the maximum number of parameters in one statement supported by the driver
+     * @return the number of inserted rows
+     */
+    int insertBulk(String sql, Iterable<Object[]> rows, int maxParameters);
+
+    /**
+     * Executes a query to modify the data for many objects as JDBC batches.
+     * @param sql a query to execute
+     * @param items objects to get parameters of the query
+     * @param mapper class or lambda to map an object to parameters of the query
+     * @return the number of rows affected for every object
+     */
+    <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper);
+
+    /**
+     * Executes a query to modify the data for many objects as JDBC batches.
+     * @param sql a query to execute
+     * @param items objects to get parameters of the query
+     * @param mapper class or lambda to map an object to parameters of the query
+     * @param batchSize the maximum number of rows in one batch
+     * @return the number of rows affected for every object
+     */
+    <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper, int batchSize);
+
     /**
      * Constructs an instance of EasyJdbc
      * @return implementation of EasyJdbc
@@ -124,4 +335,22 @@ public interface EasyJdbc {
     static EasyJdbcImpl of(Connection connection) {
         return new EasyJdbcImpl( new ExternalConnectionManager(connection));
     }
+
+    /**
+     * Constructs an instance of EasyJdbc which reports its operations to the listener
+     * @param listener listener of operations, e.g. {@link org.bobachenko.easyjdbc.metrics.MetricsExecutionListener}
+     * @return implementation of EasyJdbc
+     */
+    static EasyJdbcImpl of(DataSource dataSource, ExecutionListener listener) {
+        return new EasyJdbcImpl(new DataSourceConnectionManager(dataSource), listener);
+    }
+
+    /**
+     * Constructs an instance of EasyJdbc which reports its operations to the listener
+     * @param listener listener of operations, e.g. {@link org.bobachenko.easyjdbc.metrics.MetricsExecutionListener}
+     * @return implementation of EasyJdbc
+     */
+    static EasyJdbcImpl of(Connection connection, ExecutionListener listener) {
+        return new EasyJdbcImpl(new ExternalConnectionManager(connection), listener);
+    }
 }
@@ -23,17 +23,21 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.StatementCacheStatistics;
 import org.bobachenko.easyjdbc.exception.EasySqlException;
 import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
 import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
 import org.bobachenko.easyjdbc.mapper.RowMapper;
-import java.math.BigDecimal;
 import java.sql.*;
-import java.time.Instant;
 import java.util.*;
-import java.util.Date;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Wrapper class to use JDBC easily.
@@ -42,27 +46,65 @@ import java.util.logging.Logger;
  */
 public final class EasyJdbcImpl implements EasyJdbc {
 
-    //TODO Maybe it would be better to use another logger.
-    private Logger logger = Logger.getLogger(EasyJdbc.class.getName());
+    /**
+     * Default number of rows in one JDBC batch
+     */
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Default number of rows fetched from the database at once by lazy queries
+     */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Default maximum number of parameters in one statement of a bulk insert
+     */
+    static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+    /**
+     * Maximum number of rows in one statement of a bulk insert, some databases don't allow more
+     */
+    static final int MAX_BULK_ROWS = 1000;
+
+    /**
+     * Drivers by name and version, true if they return generated keys of all rows of a batch
+     */
+    private static final Map<String, Boolean> batchKeysOfDrivers = new ConcurrentHashMap<>();
 
     private final ConnectionManager connectionManager;
+    private final ExecutionListener listener;
 
     EasyJdbcImpl(ConnectionManager connectionManager) {
+        this(connectionManager, null);
+    }
+
+    EasyJdbcImpl(ConnectionManager connectionManager, ExecutionListener listener) {
         if (connectionManager == null)
             throw new IllegalStateException("The dataSource parameter cannot be null.");
 
         this.connectionManager = connectionManager;
+        this.listener = listener;
+    }
+
+    /**
+     * Statistics of the cache of prepared statements of connections which are used by this object.
+     */
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return connectionManager.getStatementCacheStatistics();
     }
 
     private <T> T exec(Operation<T> operation) {
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        ExecutionContext context = new ExecutionContext(connectionManager, listener);
         try {
-            return operation.run(connectionManager.getConnection(), stmt, rs);
+            return operation.run(context);
         } catch (SQLException e) {
+            context.fail(e);
             throw new EasySqlException(e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            context.fail(e);
+            throw e;
         } finally {
-            close(stmt, rs);
+            context.close();
         }
     }
 
@@ -78,9 +120,9 @@ public final class EasyJdbcImpl implements EasyJdbc {
         if (mapper == null)
             throw new IllegalArgumentException("RowMapper cannot be null.");
 
-        return exec((con, st, rs) -> {
-            st = prepareStatement(con, sql, params);
-            rs = st.executeQuery();
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            ResultSet rs = executeQuery(context, st);
             return mapper.map(rs);
         });
     }
@@ -104,6 +146,91 @@ public final class EasyJdbcImpl implements EasyJdbc {
         }, params);
     }
 
+    /**
+     * Executes a query and returns the value of the first field of the first row as long without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    @Override
+    public OptionalLong queryLong(String sql, Object... params) {
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            ResultSet rs = executeQuery(context, st);
+            if (rs.next()) {
+                long value = rs.getLong(1);
+                if (!rs.wasNull())
+                    return OptionalLong.of(value);
+            }
+            return OptionalLong.empty();
+        });
+    }
+
+    /**
+     * Executes a query and returns the value of the first field of the first row as int without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    @Override
+    public OptionalInt queryInt(String sql, Object... params) {
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            ResultSet rs = executeQuery(context, st);
+            if (rs.next()) {
+                int value = rs.getInt(1);
+                if (!rs.wasNull())
+                    return OptionalInt.of(value);
+            }
+            return OptionalInt.empty();
+        });
+    }
+
+    /**
+     * Executes a query and returns the value of the first field of the first row as double without boxing.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return value if the row exists and the value isn't NULL
+     */
+    @Override
+    public OptionalDouble queryDouble(String sql, Object... params) {
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            ResultSet rs = executeQuery(context, st);
+            if (rs.next()) {
+                double value = rs.getDouble(1);
+                if (!rs.wasNull())
+                    return OptionalDouble.of(value);
+            }
+            return OptionalDouble.empty();
+        });
+    }
+
+    /**
+     * Executes a query and returns values of the first field of all rows as long without boxing.
+     * NULL values are returned as 0.
+     * @param sql a query with one field. If field isn't one this method returns first field.
+     * @param params parameters for the query in it's needed
+     * @return values in the order of rows
+     */
+    @Override
+    public long[] queryLongArray(String sql, Object... params) {
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            st.setFetchSize(DEFAULT_FETCH_SIZE);
+            ResultSet rs = executeQuery(context, st);
+
+            long[] result = new long[16];
+            int count = 0;
+            while (rs.next()) {
+                if (count == result.length)
+                    result = Arrays.copyOf(result, count * 2);
+                result[count++] = rs.getLong(1);
+            }
+            return result.length == count ? result : Arrays.copyOf(result, count);
+        });
+    }
+
     /**
      * Executes a query and creates an object that has a data of the single row of the result.
      * @param sql a query to execute
@@ -126,6 +253,7 @@ public final class EasyJdbcImpl implements EasyJdbc {
     /**
      * Executes a query and creates a list of maps that have a data of all rows of the result.
      * Every map in the list contains string keys with the names like columns before keyword FROM in the query.
+     * Keys are sorted by names. Maps of one result share their keys until a map adds or removes a key.
      * @param sql a query to execute
      * @param params parameters for the query with correspondent types, if it's needed
      */
@@ -134,17 +262,10 @@ public final class EasyJdbcImpl implements EasyJdbc {
 
         return queryResult(sql, rs -> {
             List<Map<String, Object>> result = new ArrayList<>();
-            ResultSetMetaData metaData = rs.getMetaData();
-
-            while (rs.next()) {
-                Map<String, Object> record = new TreeMap<>();
+            RowMap.Columns columns = RowMap.Columns.of(rs.getMetaData());
 
-                for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                    record.putIfAbsent(metaData.getColumnName(i), rs.getObject(i));
-                }
-
-                result.add(record);
-            }
+            while (rs.next())
+                result.add(RowMap.read(columns, rs));
 
             return Optional.of(result);
         }, params).get();
@@ -173,6 +294,207 @@ public final class EasyJdbcImpl implements EasyJdbc {
 
     }
 
+    /**
+     * Executes a query and reads all rows of the result into columns.
+     * Values of numeric columns are stored in arrays of primitives chosen by the types of the columns.
+     * @param sql a query to execute
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return columnar result of the query
+     */
+    @Override
+    public ColumnarResult queryColumns(String sql, Object... params) {
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            st.setFetchSize(DEFAULT_FETCH_SIZE);
+            ResultSet rs = executeQuery(context, st);
+            return ColumnarResult.read(rs);
+        });
+    }
+
+    /**
+     * Executes a query and returns a lazy stream of objects that have a data of rows of the result.
+     * Rows are fetched from the database by default fetch size while the stream is being consumed.
+     * The connection and the cursor are released when the stream is closed or fully consumed,
+     * therefore use the stream in try-with-resources block.
+     * @param sql a query to execute
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    @Override
+    public <T> Stream<T> queryStream(String sql, RowMapper<T> mapper, Object... params) {
+        return queryStream(sql, DEFAULT_FETCH_SIZE, mapper, params);
+    }
+
+    /**
+     * Executes a query and returns a lazy stream of objects that have a data of rows of the result.
+     * The connection and the cursor are released when the stream is closed or fully consumed,
+     * therefore use the stream in try-with-resources block.
+     * @param sql a query to execute
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    @Override
+    public <T> Stream<T> queryStream(String sql, int fetchSize, RowMapper<T> mapper, Object... params) {
+        RowSpliterator<T> spliterator = new RowSpliterator<>(openCursor(sql, fetchSize, mapper, params));
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Executes a query and returns its open cursor. The caller must close the cursor.
+     * @param sql a query to execute
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    <T> RowCursor<T> openCursor(String sql, int fetchSize, RowMapper<T> mapper, Object... params) {
+        if (mapper == null)
+            throw new IllegalArgumentException("RowMapper cannot be null.");
+
+        // the context isn't closed here, it's closed with the cursor
+        ExecutionContext context = new ExecutionContext(connectionManager, listener);
+        ResultSet rs;
+        try {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            st.setFetchSize(fetchSize);
+            rs = executeQuery(context, st);
+        } catch (SQLException e) {
+            context.fail(e);
+            context.close();
+            throw new EasySqlException(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            context.fail(e);
+            context.close();
+            throw e;
+        }
+
+        return new RowCursor<>(context, rs, mapper);
+    }
+
+    /**
+     * Executes a query and passes rows of the result to the callback one by one without collecting them.
+     * Rows are fetched from the database by default fetch size.
+     * @param sql a query to execute
+     * @param callback class or lambda to process a row. It returns false to stop processing
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return the number of processed rows
+     */
+    @Override
+    public int forEachRow(String sql, RowCallback callback, Object... params) {
+        return forEachRow(sql, DEFAULT_FETCH_SIZE, callback, params);
+    }
+
+    /**
+     * Executes a query and passes rows of the result to the callback one by one without collecting them.
+     * @param sql a query to execute
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param callback class or lambda to process a row. It returns false to stop processing
+     * @param params parameters for the query with correspondent types, if it's needed
+     * @return the number of processed rows
+     */
+    @Override
+    public int forEachRow(String sql, int fetchSize, RowCallback callback, Object... params) {
+        if (callback == null)
+            throw new IllegalArgumentException("RowCallback cannot be null.");
+
+        return exec(context -> {
+            PreparedStatement st = prepareStatement(context, sql, params);
+            st.setFetchSize(fetchSize);
+            ResultSet rs = executeQuery(context, st);
+
+            int rowNum = 0;
+            while (rs.next()) {
+                if (!callback.process(rs, rowNum++))
+                    break;
+            }
+            return rowNum;
+        });
+    }
+
+    /**
+     * Executes a query split by ranges of a numeric key on many connections concurrently.
+     * @param sql a query to execute, it must select the key column
+     * @param keyColumn name of the key column
+     * @param min the minimum value of the key, inclusive
+     * @param max the maximum value of the key, inclusive
+     * @param partitions the number of partitions
+     * @param mapper class or lambda to map each row of a result set
+     * @param params parameters for the query
+     * @return rows of all partitions in the order of ranges
+     */
+    @Override
+    public <T> List<T> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                        RowMapper<T> mapper, Object... params) {
+        if (mapper == null)
+            throw new IllegalArgumentException("RowMapper cannot be null.");
+
+        RangePartitions ranges = new RangePartitions(sql, keyColumn, min, max, partitions, params);
+        List<List<T>> results = ranges.run(getParallelism(), (partitionSql, partitionParams) ->
+                queryList(partitionSql, mapper, partitionParams));
+        if (results.size() == 1)
+            return results.get(0);
+
+        int size = 0;
+        for (List<T> result : results)
+            size += result.size();
+        List<T> rows = new ArrayList<>(size);
+        for (List<T> result : results)
+            rows.addAll(result);
+        return rows;
+    }
+
+    /**
+     * Executes a query split by ranges of a numeric key on many connections concurrently
+     * and passes rows to the callback.
+     * @param sql a query to execute, it must select the key column
+     * @param keyColumn name of the key column
+     * @param min the minimum value of the key, inclusive
+     * @param max the maximum value of the key, inclusive
+     * @param partitions the number of partitions
+     * @param callback thread-safe class or lambda to process each row, false stops all partitions
+     * @param params parameters for the query
+     * @return the number of processed rows
+     */
+    @Override
+    public int forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                     RowCallback callback, Object... params) {
+        if (callback == null)
+            throw new IllegalArgumentException("RowCallback cannot be null.");
+
+        RangePartitions ranges = new RangePartitions(sql, keyColumn, min, max, partitions, params);
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicInteger processed = new AtomicInteger();
+        RowCallback partitionCallback = (rs, rowNumber) -> {
+            if (stopped.get())
+                return false;
+            processed.incrementAndGet();
+            if (callback.process(rs, rowNumber))
+                return true;
+            stopped.set(true);
+            return false;
+        };
+
+        ranges.run(getParallelism(), (partitionSql, partitionParams) -> {
+            try {
+                return forEachRow(partitionSql, partitionCallback, partitionParams);
+            } catch (RuntimeException | Error e) {
+                // other partitions stop at the next row
+                stopped.set(true);
+                throw e;
+            }
+        });
+        return processed.get();
+    }
+
+    /**
+     * Partitions can run concurrently only if every operation gets its own connection.
+     * They are limited by the size of the pool, so they don't wait for each other's connections.
+     */
+    private int getParallelism() {
+        return connectionManager instanceof DataSourceConnectionManager ?
+                ((DataSourceConnectionManager) connectionManager).getParallelism() : 1;
+    }
+
     /**
      * Creates a new row by "INSERT" statement and returns value of a primary key
      * @param sql a query with the INSERT keyword to execute
@@ -197,17 +519,17 @@ public final class EasyJdbcImpl implements EasyJdbc {
      */
     @Override
     public <T> Optional<T> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params) {
-        return exec((con, st, rs) -> {
-            if (con.isReadOnly())
+        return exec(context -> {
+            if (context.getConnection().isReadOnly())
                 throw new IllegalStateException("Connection cannot be in read only state when" +
                         " create operation is being called!");
 
-            st = prepareStatement(con, sql, true, params);
-            st.executeUpdate();
+            PreparedStatement st = prepareStatement(context, sql, true, params);
+            executeUpdate(context, st);
 
             // map key
             if (compositeKeyMapper != null) {
-                rs = st.getGeneratedKeys();
+                ResultSet rs = context.register(st.getGeneratedKeys());
                 if (rs != null && rs.next())
                     return Optional.of(compositeKeyMapper.map(rs));
             }
@@ -216,6 +538,184 @@ public final class EasyJdbcImpl implements EasyJdbc {
         });
     }
 
+    /**
+     * Creates many rows by "INSERT" statement as JDBC batches and returns values of primary keys
+     * in the order of rows. If the driver doesn't support batch updates or generated keys,
+     * rows are inserted one by one by the same statement.
+     * The first batch of every driver checks that it returns keys of all rows of a batch, if it doesn't,
+     * the batch is rolled back and rows of this and later calls are inserted one by one.
+     * @param sql a query with the INSERT keyword to execute
+     * @param rows parameters for the query, one array per row
+     * @param typeOfNotCompositePrimaryKey type of primary key
+     * @return values of primary keys
+     */
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, Class<T> typeOfNotCompositePrimaryKey) {
+        if (typeOfNotCompositePrimaryKey == null)
+            throw new IllegalArgumentException("Type of primary key cannot be null.");
+        return createBatch(sql, rows, rs -> typeOfNotCompositePrimaryKey.cast(rs.getObject(1)));
+    }
+
+    /**
+     * Creates many rows by "INSERT" statement as JDBC batches and returns objects that contain the data
+     * of the composite primary keys in the order of rows. If the driver doesn't support batch updates
+     * or generated keys, rows are inserted one by one by the same statement.
+     * The first batch of every driver checks that it returns keys of all rows of a batch, if it doesn't,
+     * the batch is rolled back and rows of this and later calls are inserted one by one.
+     * @param sql a query with the INSERT keyword to execute
+     * @param rows parameters for the query, one array per row
+     * @param compositeKeyMapper class or lambda to map the value of the composite key
+     * @return objects that contain a data of the composite primary keys
+     */
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper) {
+        if (rows == null)
+            throw new IllegalArgumentException("Rows cannot be null.");
+        if (compositeKeyMapper == null)
+            throw new IllegalArgumentException("KeyMapper cannot be null.");
+
+        return exec(context -> {
+            Connection con = context.getConnection();
+            if (con.isReadOnly())
+                throw new IllegalStateException("Connection cannot be in read only state when" +
+                        " create operation is being called!");
+
+            DatabaseMetaData metaData = con.getMetaData();
+            String driver = metaData.getDriverName() + " " + metaData.getDriverVersion();
+            Boolean driverBatchKeys = batchKeysOfDrivers.get(driver);
+            boolean batchKeys = metaData.supportsBatchUpdates() && metaData.supportsGetGeneratedKeys()
+                    && !Boolean.FALSE.equals(driverBatchKeys);
+            // rows of the first batch of an unknown driver are kept to insert them again one by one
+            List<Object[]> probed = batchKeys && driverBatchKeys == null
+                    && (con.getAutoCommit() || metaData.supportsSavepoints()) ? new ArrayList<>() : null;
+
+            PreparedStatement st = null;
+            List<T> result = rows instanceof Collection ?
+                    new ArrayList<>(((Collection<?>) rows).size()) : new ArrayList<>();
+
+            int batched = 0;
+            for (Object[] row : rows) {
+                // the statement is prepared by the first row to know if parameters are named
+                if (st == null)
+                    st = prepareStatement(context, sql, true, row);
+                else
+                    setParameters(st, sql, row);
+
+                if (batchKeys) {
+                    st.addBatch();
+                    if (probed != null)
+                        probed.add(row);
+                    if (++batched == DEFAULT_BATCH_SIZE) {
+                        batchKeys = executeBatchKeys(context, st, sql, batched, probed, driver,
+                                compositeKeyMapper, result);
+                        probed = null;
+                        batched = 0;
+                    }
+                } else {
+                    executeUpdate(context, st);
+                    mapKeys(st, 1, compositeKeyMapper, result);
+                }
+            }
+
+            if (batched > 0)
+                executeBatchKeys(context, st, sql, batched, probed, driver, compositeKeyMapper, result);
+
+            return result;
+        });
+    }
+
+    /**
+     * Executes the batch and maps generated keys of its rows.
+     * The first batch of a driver is a probe: it's rolled back if the driver returns keys not of every row,
+     * its rows are inserted again one by one and later batches of the driver are run row by row.
+     * A probe of one row doesn't decide for the driver, so the next call probes again.
+     * @param probed rows of the batch if it's a probe, otherwise null
+     * @return true if next rows can be inserted by batches
+     */
+    private <T> boolean executeBatchKeys(ExecutionContext context, PreparedStatement statement, String sql,
+                                         int batched, List<Object[]> probed, String driver,
+                                         KeyMapper<T> keyMapper, List<T> result) throws SQLException {
+        if (probed == null) {
+            executeBatch(context, statement);
+            mapKeys(statement, batched, keyMapper, result);
+            return true;
+        }
+
+        Connection con = context.getConnection();
+        boolean autoCommit = con.getAutoCommit();
+        Savepoint savepoint = null;
+        if (autoCommit)
+            con.setAutoCommit(false);
+        else
+            savepoint = con.setSavepoint();
+
+        try {
+            executeBatch(context, statement);
+            List<T> keys = new ArrayList<>(batched);
+            if (readKeys(statement, keyMapper, keys) == batched) {
+                if (autoCommit)
+                    con.commit();
+                else
+                    con.releaseSavepoint(savepoint);
+                // every driver returns the key of a single row, so only a batch of many rows proves support
+                if (batched > 1)
+                    batchKeysOfDrivers.put(driver, true);
+                result.addAll(keys);
+                return true;
+            }
+
+            if (autoCommit)
+                con.rollback();
+            else
+                con.rollback(savepoint);
+        } catch (SQLException | RuntimeException e) {
+            if (autoCommit)
+                con.rollback();
+            else
+                con.rollback(savepoint);
+            throw e;
+        } finally {
+            if (autoCommit)
+                con.setAutoCommit(true);
+        }
+
+        if (batched > 1)
+            batchKeysOfDrivers.put(driver, false);
+        for (Object[] row : probed) {
+            setParameters(statement, sql, row);
+            executeUpdate(context, statement);
+            mapKeys(statement, 1, keyMapper, result);
+        }
+        return false;
+    }
+
+    /**
+     * Maps generated keys of the last execution of the statement
+     */
+    private <T> void mapKeys(PreparedStatement statement, int expectedRows,
+                             KeyMapper<T> keyMapper, List<T> result) throws SQLException {
+        int mapped = readKeys(statement, keyMapper, result);
+        if (mapped != expectedRows)
+            throw new EasySqlException(String.format("The driver returned %d generated keys for %d rows.",
+                    mapped, expectedRows), null);
+    }
+
+    /**
+     * Reads generated keys of the last execution of the statement
+     * @return the number of keys
+     */
+    private static <T> int readKeys(PreparedStatement statement, KeyMapper<T> keyMapper,
+                                    List<T> result) throws SQLException {
+        int mapped = 0;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys != null && keys.next()) {
+                result.add(keyMapper.map(keys));
+                mapped++;
+            }
+        }
+        return mapped;
+    }
+
     /**
      * Executes a query to modify the data by the "UPDATE" or "DELETE" keywords.
      * @param sql a query to execute
@@ -224,125 +724,371 @@ public final class EasyJdbcImpl implements EasyJdbc {
      */
     @Override
     public int update(String sql, Object... params) {
-        return exec((con, st, rs) -> {
-            if (con.isReadOnly())
+        return exec(context -> {
+            if (context.getConnection().isReadOnly())
                 throw new IllegalStateException("Connection cannot be in read only state when " +
                         "create operation is being called!");
 
-            st = prepareStatement(con, sql, params);
-            return st.executeUpdate();
+            PreparedStatement st = prepareStatement(context, sql, params);
+            return executeUpdate(context, st);
+        });
+    }
+
+    /**
+     * Executes a query to modify the data for many rows as JDBC batches.
+     * The statement is prepared once and batches are sent by default size.
+     * @param sql a query to execute
+     * @param rows parameters for the query, one array per row
+     * @return the number of rows affected for every row
+     */
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows) {
+        return updateBatch(sql, rows, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Executes a query to modify the data for many rows as JDBC batches.
+     * @param sql a query to execute
+     * @param rows parameters for the query, one array per row
+     * @param batchSize the maximum number of rows in one batch
+     * @return the number of rows affected for every row
+     */
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows, int batchSize) {
+        if (rows == null)
+            throw new IllegalArgumentException("Rows cannot be null.");
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("Batch size must be positive.");
+
+        return exec(context -> {
+            Connection con = context.getConnection();
+            if (con.isReadOnly())
+                throw new IllegalStateException("Connection cannot be in read only state when " +
+                        "update operation is being called!");
+
+            PreparedStatement st = null;
+
+            int[] result = new int[rows instanceof Collection ? ((Collection<?>) rows).size() : batchSize];
+            int count = 0;
+            int batched = 0;
+
+            for (Object[] row : rows) {
+                // the statement is prepared by the first row to know if parameters are named
+                if (st == null)
+                    st = prepareStatement(context, sql, false, row);
+                else
+                    setParameters(st, sql, row);
+                st.addBatch();
+
+                if (++batched == batchSize) {
+                    result = append(result, count, executeBatch(context, st));
+                    count += batched;
+                    batched = 0;
+                }
+            }
+
+            if (batched > 0) {
+                result = append(result, count, executeBatch(context, st));
+                count += batched;
+            }
+
+            return result.length == count ? result : Arrays.copyOf(result, count);
         });
     }
 
     /**
-     * Prepare statement and fill parameters
+     * Inserts many rows by statements with multi-row VALUES.
+     * @param sql INSERT with one row of VALUES
+     * @param rows parameters for the template, one array per row
+     * @return the number of inserted rows
+     */
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows) {
+        return insertBulk(sql, rows, DEFAULT_MAX_PARAMETERS);
+    }
+
+    /**
+     * Inserts many rows by statements with multi-row VALUES. Rows are sent by full blocks,
+     * the rest is split into blocks of powers of two, so there are few distinct statements to cache.
+     * @param sql INSERT with one row of VALUES
+     * @param rows parameters for the template, one array per row
+     * @param maxParameters the maximum number of parameters in one statement supported by the driver
+     * @return the number of inserted rows
      */
-    private PreparedStatement prepareStatement(Connection connection, String sql,
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows, int maxParameters) {
+        if (rows == null)
+            throw new IllegalArgumentException("Rows cannot be null.");
+        BulkInsert bulk = BulkInsert.of(sql);
+        int parameters = bulk.getParameters();
+        if (maxParameters < Math.max(parameters, 1))
+            throw new IllegalArgumentException(String.format("A row has %d parameters, it's more than %d.",
+                    parameters, maxParameters));
+
+        int blockSize = parameters == 0 ? MAX_BULK_ROWS : Math.min(MAX_BULK_ROWS, maxParameters / parameters);
+        // the size of a collection only saves memory, it doesn't change sizes of blocks
+        int capacity = rows instanceof Collection ?
+                Math.max(1, Math.min(blockSize, ((Collection<?>) rows).size())) : blockSize;
+        Object[][] block = new Object[capacity][];
+
+        return exec(context -> {
+            // the template is traced instead of SQL of blocks, they are prepared without changing it
+            context.setSql(sql);
+            if (context.getConnection().isReadOnly())
+                throw new IllegalStateException("Connection cannot be in read only state when " +
+                        "insert operation is being called!");
+
+            // statements are reused for blocks of the same size
+            Map<Integer, PreparedStatement> statements = new HashMap<>();
+            int count = 0;
+            int inserted = 0;
+            for (Object[] row : rows) {
+                int length = row == null ? 0 : row.length;
+                if (length != parameters)
+                    throw new IllegalArgumentException(String.format("Row has %d parameters, %d expected.",
+                            length, parameters));
+                block[count++] = row;
+                if (count == block.length) {
+                    inserted += insertBlocks(context, bulk, statements, block, count, blockSize);
+                    count = 0;
+                }
+            }
+            return inserted + insertBlocks(context, bulk, statements, block, count, blockSize);
+        });
+    }
+
+    /**
+     * Inserts rows by full blocks and the rest by blocks of powers of two,
+     * so a few shapes of statements are prepared for any number of rows
+     */
+    private int insertBlocks(ExecutionContext context, BulkInsert bulk, Map<Integer, PreparedStatement> statements,
+                             Object[][] block, int count, int blockSize) throws SQLException {
+        int inserted = 0;
+        int offset = 0;
+        while (count > 0) {
+            int size = count >= blockSize ? blockSize : Integer.highestOneBit(count);
+            inserted += insertBlock(context, bulk, statements, block, offset, size);
+            offset += size;
+            count -= size;
+        }
+        return inserted;
+    }
+
+    private int insertBlock(ExecutionContext context, BulkInsert bulk, Map<Integer, PreparedStatement> statements,
+                            Object[][] block, int offset, int size) throws SQLException {
+        PreparedStatement st = statements.get(size);
+        if (st == null) {
+            st = prepare(context, bulk.getSql(size), false);
+            statements.put(size, st);
+        }
+
+        int position = 0;
+        for (int i = offset; i < offset + size; i++) {
+            for (Object value : block[i])
+                addParameter(++position, st, value);
+            block[i] = null;
+        }
+        return executeUpdate(context, st);
+    }
+
+    /**
+     * Executes a query to modify the data for many objects as JDBC batches.
+     * @param sql a query to execute
+     * @param items objects to get parameters of the query
+     * @param mapper class or lambda to map an object to parameters of the query
+     * @return the number of rows affected for every object
+     */
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper) {
+        return updateBatch(sql, items, mapper, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Executes a query to modify the data for many objects as JDBC batches.
+     * @param sql a query to execute
+     * @param items objects to get parameters of the query
+     * @param mapper class or lambda to map an object to parameters of the query
+     * @param batchSize the maximum number of rows in one batch
+     * @return the number of rows affected for every object
+     */
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper, int batchSize) {
+        if (items == null)
+            throw new IllegalArgumentException("Items cannot be null.");
+        if (mapper == null)
+            throw new IllegalArgumentException("ParameterMapper cannot be null.");
+
+        return updateBatch(sql, new MappedRows<>(items, mapper), batchSize);
+    }
+
+    /**
+     * Copies counts of executed batch to the result and grows it if it's needed
+     */
+    private static int[] append(int[] result, int offset, int[] counts) {
+        if (offset + counts.length > result.length)
+            result = Arrays.copyOf(result, Math.max(result.length * 2, offset + counts.length));
+        System.arraycopy(counts, 0, result, offset, counts.length);
+        return result;
+    }
+
+    /**
+     * Prepare statement, register it in the context and fill parameters.
+     * SQL with named parameters is compiled to SQL with positional parameters.
+     */
+    private PreparedStatement prepareStatement(ExecutionContext context, String sql,
                                                boolean returnKey, Object... params) throws SQLException {
+        context.setSql(sql);
+        return prepare(context, sql, returnKey, params);
+    }
+
+    /**
+     * Prepares the statement without changing SQL which is traced for the listener
+     */
+    private PreparedStatement prepare(ExecutionContext context, String sql,
+                                      boolean returnKey, Object... params) throws SQLException {
+        Connection connection = context.getConnection();
+        long started = context.start();
+        String positionalSql = NamedSql.isNamed(params) ? NamedSql.of(sql).getSql() : sql;
         PreparedStatement statement;
-        statement = returnKey ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
-                connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        statement = context.register(returnKey ?
+                connection.prepareStatement(positionalSql, Statement.RETURN_GENERATED_KEYS) :
+                connection.prepareStatement(positionalSql));
         statement.clearParameters();
+        setParameters(statement, sql, params);
+        context.end(ExecutionPhase.PREPARE, started);
+        return statement;
+    }
 
-        if (params != null) {
+    /**
+     * Execute the query and register its result set in the context
+     */
+    private static ResultSet executeQuery(ExecutionContext context, PreparedStatement statement) throws SQLException {
+        long started = context.start();
+        ResultSet resultSet = context.register(statement.executeQuery());
+        context.end(ExecutionPhase.EXECUTE, started);
+        return resultSet;
+    }
+
+    /**
+     * Execute the modifying statement
+     */
+    private static int executeUpdate(ExecutionContext context, PreparedStatement statement) throws SQLException {
+        long started = context.start();
+        int count = statement.executeUpdate();
+        context.end(ExecutionPhase.EXECUTE, started);
+        return count;
+    }
+
+    /**
+     * Execute the batch of the statement
+     */
+    private static int[] executeBatch(ExecutionContext context, PreparedStatement statement) throws SQLException {
+        long started = context.start();
+        int[] counts = statement.executeBatch();
+        context.end(ExecutionPhase.EXECUTE, started);
+        return counts;
+    }
+
+    /**
+     * Fill parameters of the statement. Named parameters are bound to all their positions.
+     */
+    private void setParameters(PreparedStatement statement, String sql, Object... params) throws SQLException {
+        if (NamedSql.isNamed(params)) {
+            NamedSql named = NamedSql.of(sql);
+            NamedParameters values = (NamedParameters) params[0];
+            String[] names = named.getNames();
+            for (int i = 0; i < names.length; i++) {
+                Object value = values.get(names[i]);
+                for (int position : named.getPositions(i))
+                    addParameter(position, statement, value);
+            }
+        } else if (params != null) {
             int num = 0;
             for (Object param : params)
-                addParameter(connection, ++num, statement, param);
+                addParameter(++num, statement, param);
         }
-        return statement;
     }
 
     /**
      * Prepare statement and fill parameters. Statement doesn't return generated keys
      */
-    private PreparedStatement prepareStatement(Connection connection, String sql,
+    private PreparedStatement prepareStatement(ExecutionContext context, String sql,
                                                Object... params) throws SQLException {
-        return prepareStatement(connection, sql, false, params);
+        return prepareStatement(context, sql, false, params);
     }
 
     /**
-     * Close all JDBC object
-     * Because it's a good practice to always close ResultSet
-     * and Statement explicitly and not to rely on Connection.close.
+     * Add parameter to statement by the binder of its java type
      */
-    private void close(Statement statement, ResultSet resultSet) {
-        if (resultSet != null) {
-            try {
-                resultSet.close();
-            } catch (SQLException e) {
-                logger.log(Level.WARNING, "Close result set error", e);
-            }
+    private void addParameter(int numberOfParam, PreparedStatement statement,
+                              Object paramValue) throws SQLException {
+        ParameterBinders.bind(statement, numberOfParam, paramValue);
+    }
+
+    /**
+     * Rows of parameters which are mapped from objects on the fly
+     */
+    private static final class MappedRows<T> extends AbstractCollection<Object[]> {
+        private final Collection<T> items;
+        private final ParameterMapper<T> mapper;
+
+        MappedRows(Collection<T> items, ParameterMapper<T> mapper) {
+            this.items = items;
+            this.mapper = mapper;
         }
 
-        if (statement != null) {
-            try {
-                statement.close();
-            } catch (SQLException e) {
-                logger.log(Level.WARNING, "Close statement error", e);
-            }
+        @Override
+        public Iterator<Object[]> iterator() {
+            Iterator<T> iterator = items.iterator();
+            return new Iterator<Object[]>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object[] next() {
+                    return mapper.map(iterator.next());
+                }
+            };
         }
 
-        try {
-            connectionManager.closeConnection();
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Close connection error", e);
+        @Override
+        public int size() {
+            return items.size();
         }
     }
 
     /**
-     * Add parameter to statement
+     * Reads rows of the open cursor on demand and releases JDBC objects at the end
      */
-    private void addParameter(Connection con, int numberOfParam, PreparedStatement statement,
-                              Object paramValue) throws SQLException {
+    private static final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final RowCursor<T> cursor;
 
-        // cast java types to JDBC types
-        if (paramValue instanceof Boolean) {
-            statement.setBoolean(numberOfParam, (boolean) paramValue);
-            return;
-        } else if (paramValue instanceof Byte) {
-            statement.setByte(numberOfParam, (byte) paramValue);
-            return;
-        } else if (paramValue instanceof Double) {
-            statement.setDouble(numberOfParam, (double) paramValue);
-            return;
-        } else if (paramValue instanceof Float) {
-            statement.setFloat(numberOfParam, (float) paramValue);
-            return;
-        } else if (paramValue instanceof Integer) {
-            statement.setInt(numberOfParam, (int) paramValue);
-            return;
-        } else if (paramValue instanceof Long) {
-            statement.setLong(numberOfParam, (long) paramValue);
-            return;
-        } else if (paramValue instanceof Short) {
-            statement.setShort(numberOfParam, (short) paramValue);
-            return;
-        } else if (paramValue instanceof String) {
-            statement.setString(numberOfParam, paramValue.toString());
-            return;
-        } else if (paramValue instanceof Character) {
-            statement.setString(numberOfParam, String.valueOf(paramValue));
-            return;
-        } else if (paramValue instanceof Date) {
-            statement.setTimestamp(numberOfParam, new Timestamp(((Date) paramValue).getTime()));
-            return;
-        } else if (paramValue instanceof Calendar) {
-            statement.setTimestamp(numberOfParam, new Timestamp(((Calendar) paramValue).getTimeInMillis()));
-            return;
-        } else if (paramValue instanceof Instant) {
-            statement.setTimestamp(numberOfParam, new Timestamp(((Instant) paramValue).toEpochMilli()));
-            return;
-        } else if (paramValue instanceof BigDecimal) {
-            statement.setBigDecimal(numberOfParam, (BigDecimal) paramValue);
-            return;
-        } else if (paramValue instanceof Array) {
-            Array a = (Array) paramValue;
-            java.sql.Array sqlArray = con.createArrayOf(a.getDbDatatype(), a.getValues());
-            statement.setArray(numberOfParam, sqlArray);
-            return;
+        RowSpliterator(RowCursor<T> cursor) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.cursor = cursor;
         }
 
-        // If it's another type, we have to rely on JDBC
-        statement.setObject(numberOfParam, paramValue);
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (cursor.next()) {
+                    action.accept(cursor.get());
+                    return true;
+                }
+            } catch (SQLException e) {
+                close();
+                throw new EasySqlException(e.getMessage(), e);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            return false;
+        }
+
+        void close() {
+            cursor.close();
+        }
     }
 }
\ No newline at end of file
@@ -40,6 +40,25 @@ public interface EasyTransaction {
      */
     EasyTransaction run(Consumer<EasyJdbc> transactionConsumer);
 
+    /**
+     * Run the current transaction with deferred updates. Updates queued by
+     * {@link DeferredEasyJdbc#updateDeferred} are sent as batches before the next operation or at commit.
+     * If the transaction is retried, futures returned by the block in the failed attempt are cancelled
+     * and the replayed block gets new ones, so results must be taken from the futures of the last run.
+     * @param transactionConsumer a consumer that has a DeferredEasyJdbc object to use it for execute your queries
+     * @return the current transaction
+     */
+    EasyTransaction runDeferred(Consumer<DeferredEasyJdbc> transactionConsumer);
+
+    /**
+     * Retry the transaction on deadlocks and serialization failures. All run blocks are run again
+     * on a new connection, so they must not have side effects outside the database.
+     * Futures of deferred updates of the failed attempt are cancelled, see {@link #runDeferred}.
+     * @param retryPolicy the policy of retries, it must be set before the first run
+     * @return the current transaction
+     */
+    EasyTransaction withRetry(RetryPolicy retryPolicy);
+
     /**
      * Commit the current transaction
      */
@@ -25,21 +25,50 @@ package org.bobachenko.easyjdbc;
 
 import org.bobachenko.easyjdbc.exception.EasySqlException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Class for transactions support
  * Use one object for one transaction, therefore call method of() for each transaction
+ *
+ * With a {@link RetryPolicy} all run blocks are remembered. If the transaction fails with a transient error,
+ * it's rolled back and all blocks are run again on a new connection.
  * @author Maxim Bobachenko
  */
 public final class EasyTransactionImpl implements EasyTransaction {
 
+    private static final Logger logger = Logger.getLogger(EasyTransaction.class.getName());
+
     private TransactionalConnectionManager connectionManager;
+    private RetryPolicy retryPolicy;
+    private final List<Runnable> blocks = new ArrayList<>();
 
     EasyTransactionImpl(TransactionalConnectionManager connectionManager) {
         this.connectionManager = connectionManager;
     }
 
+    /**
+     * Retry the transaction on deadlocks and serialization failures.
+     * It must be set before the first run, blocks are run again on retry, so they must not have side effects
+     * outside the database. Futures of deferred updates of the failed attempt are cancelled,
+     * the replayed blocks get new ones.
+     * @param retryPolicy the policy of retries
+     * @return the current transaction
+     */
+    @Override
+    public EasyTransaction withRetry(RetryPolicy retryPolicy) {
+        if (retryPolicy == null)
+            throw new IllegalArgumentException("RetryPolicy cannot be null.");
+        if (!blocks.isEmpty())
+            throw new IllegalStateException("RetryPolicy must be set before the transaction is run.");
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
     /**
      * Run the current transaction
      * @param transactionConsumer a consumer that has a EasyJdbc object to use it for execute your queries
@@ -47,28 +76,76 @@ public final class EasyTransactionImpl implements EasyTransaction {
      */
     @Override
     public EasyTransaction run(Consumer<EasyJdbc> transactionConsumer) {
+        return run(transactionConsumer, new EasyJdbcImpl(connectionManager));
+    }
 
-        try {
-            transactionConsumer.accept(new EasyJdbcImpl(connectionManager));
-        } catch (Exception e) {
-            try {
-                connectionManager.rollback();
-            } catch (SQLException sqle) {/* sorry sorry guys... */}
-            throw e;
-        }
+    /**
+     * Run the current transaction with deferred updates.
+     * If the transaction is retried, futures returned by the block in the failed attempt are cancelled.
+     * @param transactionConsumer a consumer that has a DeferredEasyJdbc object to use it for execute your queries
+     * @return the current transaction
+     */
+    @Override
+    public EasyTransaction runDeferred(Consumer<DeferredEasyJdbc> transactionConsumer) {
+        return run(transactionConsumer, new DeferredEasyJdbcImpl(connectionManager));
+    }
 
+    private <T extends EasyJdbc> EasyTransaction run(Consumer<T> transactionConsumer, T jdbc) {
+        Runnable block = () -> transactionConsumer.accept(jdbc);
+        if (retryPolicy != null)
+            blocks.add(block);
+        execute(block);
         return this;
     }
 
     /**
-     * Commit the current transaction
+     * Commit the current transaction. Deferred updates are sent before commit,
+     * if they fail, the transaction is rolled back.
      */
     @Override
     public void commit() {
+        execute(() -> {
+            try {
+                connectionManager.commit();
+            } catch (SQLException e) {
+                throw new EasySqlException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Runs the action. If it fails, the transaction is rolled back, and if the policy allows,
+     * all blocks are run again before the action.
+     */
+    private void execute(Runnable action) {
+        int attempt = 1;
+        boolean replay = false;
+        while (true) {
+            try {
+                if (replay) {
+                    // the block which has failed is the last one, so it's the action of run
+                    int replayed = !blocks.isEmpty() && action == blocks.get(blocks.size() - 1) ?
+                            blocks.size() - 1 : blocks.size();
+                    for (int i = 0; i < replayed; i++)
+                        blocks.get(i).run();
+                }
+                action.run();
+                return;
+            } catch (RuntimeException e) {
+                rollback(e);
+                if (retryPolicy == null || !retryPolicy.awaitRetry(e, attempt++))
+                    throw e;
+                replay = true;
+            }
+        }
+    }
+
+    private void rollback(RuntimeException cause) {
         try {
-            connectionManager.commit();
-        } catch (SQLException e) {
-            throw new EasySqlException(e.getMessage(), e);
+            connectionManager.rollback();
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "Rollback error", e);
+            cause.addSuppressed(e);
         }
     }
 }
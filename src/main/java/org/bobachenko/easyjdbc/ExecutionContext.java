@@ -0,0 +1,188 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Context of one operation. It gets a connection from the connection manager,
+ * tracks statements and result sets which are opened by the operation
+ * and closes all of them in reverse order.
+ *
+ * If there is a listener, durations of phases of the operation are measured and reported to it.
+ * Without a listener, the clock isn't read.
+ * @author Maxim Bobachenko
+ */
+final class ExecutionContext implements AutoCloseable {
+
+    //TODO Maybe it would be better to use another logger.
+    private static final Logger logger = Logger.getLogger(EasyJdbc.class.getName());
+
+    private final ConnectionManager connectionManager;
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>(2);
+    private final ExecutionListener listener;
+    private final ExecutionTrace trace;
+    private Connection connection;
+    private boolean closed;
+    private long executedAt;
+
+    ExecutionContext(ConnectionManager connectionManager) {
+        this(connectionManager, null);
+    }
+
+    ExecutionContext(ConnectionManager connectionManager, ExecutionListener listener) {
+        this.connectionManager = connectionManager;
+        this.listener = listener;
+        this.trace = listener == null ? null : new ExecutionTrace();
+    }
+
+    /**
+     * Provides the connection of the operation. It's acquired on the first call.
+     */
+    Connection getConnection() throws SQLException {
+        if (closed)
+            throw new IllegalStateException("The operation is already completed.");
+        if (connection == null) {
+            long started = start();
+            connection = connectionManager.getConnection();
+            end(ExecutionPhase.ACQUIRE, started);
+        }
+        return connection;
+    }
+
+    /**
+     * Starts measuring of a phase
+     * @return the current time or 0 if there isn't a listener
+     */
+    long start() {
+        return trace == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Completes measuring of a phase
+     * @param started result of {@link #start()}
+     */
+    void end(ExecutionPhase phase, long started) {
+        if (trace == null)
+            return;
+        long now = System.nanoTime();
+        report(phase, now - started);
+        if (phase == ExecutionPhase.EXECUTE)
+            executedAt = now;
+    }
+
+    /**
+     * Remembers SQL of the operation for the listener
+     */
+    void setSql(String sql) {
+        if (trace != null)
+            trace.setSql(sql);
+    }
+
+    /**
+     * Remembers the exception which broke the operation for the listener
+     */
+    void fail(Throwable error) {
+        if (trace != null)
+            trace.setError(error);
+    }
+
+    private void report(ExecutionPhase phase, long nanos) {
+        trace.add(phase, nanos);
+        try {
+            listener.onPhase(trace, phase, nanos);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Execution listener error", e);
+        }
+    }
+
+    /**
+     * Registers the statement to close it at the end of the operation
+     */
+    <S extends Statement> S register(S statement) {
+        if (statement != null)
+            resources.push(statement);
+        return statement;
+    }
+
+    /**
+     * Registers the result set to close it at the end of the operation
+     */
+    ResultSet register(ResultSet resultSet) {
+        if (resultSet != null)
+            resources.push(resultSet);
+        return resultSet;
+    }
+
+    /**
+     * Close all JDBC object in reverse order and release the connection.
+     * Because it's a good practice to always close ResultSet
+     * and Statement explicitly and not to rely on Connection.close.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        long closeStarted = start();
+        if (trace != null && executedAt != 0)
+            report(ExecutionPhase.MAP, closeStarted - executedAt);
+
+        AutoCloseable resource;
+        while ((resource = resources.poll()) != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, resource instanceof ResultSet ?
+                        "Close result set error" : "Close statement error", e);
+            }
+        }
+
+        if (connection != null) {
+            try {
+                connectionManager.closeConnection(connection);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Close connection error", e);
+            }
+            connection = null;
+        }
+
+        if (trace != null) {
+            report(ExecutionPhase.CLOSE, System.nanoTime() - closeStarted);
+            try {
+                listener.onComplete(trace);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Execution listener error", e);
+            }
+        }
+    }
+}
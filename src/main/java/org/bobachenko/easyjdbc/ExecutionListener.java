@@ -0,0 +1,50 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+/**
+ * Listener of database operations of EasyJdbc.
+ * It's called by the thread of the operation, so it must be fast and thread safe.
+ * Exceptions of the listener are logged and don't break operations.
+ * @author Maxim Bobachenko
+ */
+public interface ExecutionListener {
+
+    /**
+     * Called when a phase of an operation is completed.
+     * Phases of batches can be reported several times for one operation.
+     * @param trace trace of the operation, it's not completed yet
+     * @param phase the completed phase
+     * @param nanos duration of the phase in nanoseconds
+     */
+    default void onPhase(ExecutionTrace trace, ExecutionPhase phase, long nanos) {
+    }
+
+    /**
+     * Called when an operation is completed and its resources are released
+     * @param trace timings of all phases of the operation
+     */
+    default void onComplete(ExecutionTrace trace) {
+    }
+}
@@ -0,0 +1,52 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+/**
+ * Phases of one database operation which are reported to {@link ExecutionListener}
+ * @author Maxim Bobachenko
+ */
+public enum ExecutionPhase {
+    /**
+     * Getting a connection from the DataSource or the pool
+     */
+    ACQUIRE,
+    /**
+     * Preparing a statement and binding its parameters
+     */
+    PREPARE,
+    /**
+     * Executing a statement by the database
+     */
+    EXECUTE,
+    /**
+     * Reading and mapping the result after the last execution.
+     * For lazy queries it includes the time of consumption of rows.
+     */
+    MAP,
+    /**
+     * Closing result sets and statements and releasing the connection
+     */
+    CLOSE
+}
@@ -0,0 +1,100 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+/**
+ * Timings of one database operation. Durations of repeated phases are summed.
+ * @author Maxim Bobachenko
+ */
+public final class ExecutionTrace {
+
+    private static final ExecutionPhase[] PHASES = ExecutionPhase.values();
+
+    private final long[] nanos = new long[PHASES.length];
+    private String sql;
+    private Throwable error;
+
+    ExecutionTrace() {
+    }
+
+    void add(ExecutionPhase phase, long duration) {
+        nanos[phase.ordinal()] += duration;
+    }
+
+    void setSql(String sql) {
+        if (this.sql == null)
+            this.sql = sql;
+    }
+
+    void setError(Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * SQL of the operation like it was passed to EasyJdbc. It's null if no statement was prepared.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Duration of the phase in nanoseconds
+     */
+    public long getNanos(ExecutionPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * Duration of all phases in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long duration : nanos)
+            total += duration;
+        return total;
+    }
+
+    /**
+     * The exception which broke the operation or null if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%.3f ms", getTotalNanos() / 1e6)).append(" [");
+        for (int i = 0; i < PHASES.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(PHASES[i].name().toLowerCase()).append('=')
+                    .append(String.format("%.3f", nanos[i] / 1e6));
+        }
+        builder.append("] ").append(sql);
+        if (error != null)
+            builder.append(" failed: ").append(error);
+        return builder.toString();
+    }
+}
@@ -22,17 +22,21 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 */
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.StatementCacheStatistics;
 import org.bobachenko.easyjdbc.exception.EasySqlException;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 
 /**
- * Connection manager for external connection
+ * Connection manager for external connection.
+ * Statements aren't cached, because the user closes the connection and cached statements
+ * would stay open until then. Every statement is closed after its operation.
  * @author Maxim Bobachenko
  */
 class ExternalConnectionManager implements ConnectionManager {
 
+    private final StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
     private Connection connection;
 
     ExternalConnectionManager(Connection connection) {
@@ -57,6 +61,11 @@ class ExternalConnectionManager implements ConnectionManager {
      * This method doesn't do anything, because the connection is being closed by user
      */
     @Override
-    public void closeConnection() {
+    public void closeConnection(Connection connection) {
+    }
+
+    @Override
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
     }
 }
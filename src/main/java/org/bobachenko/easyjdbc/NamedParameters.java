@@ -0,0 +1,236 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Values of named parameters like {@code :name} in SQL.
+ * Pass it as the only parameter of a query instead of positional values:
+ * <pre>
+ *     jdbc.queryList("SELECT * FROM person WHERE name = :name AND salary &gt; :salary", mapper,
+ *             NamedParameters.of("name", "Max").with("salary", 1000));
+ *     jdbc.update("UPDATE person SET salary = :salary WHERE id = :id", NamedParameters.of(person));
+ * </pre>
+ * For batches pass it as the only element of every row.
+ *
+ * Values of a bean are read by its getters, {@code getName()} or {@code isName()},
+ * or by accessors of records, {@code name()}. Names of parameters are matched with properties
+ * ignoring case and underscores, e.g. {@code :last_login} is matched with {@code getLastLogin()}.
+ * Values which are added by {@code with} take precedence over properties of the bean.
+ * @author Maxim Bobachenko
+ */
+public final class NamedParameters {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, MethodHandle>> getters = new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return gettersOf(type);
+        }
+    };
+
+    private final Map<String, Object> values;
+    private final Object bean;
+
+    private NamedParameters(Map<String, Object> values, Object bean) {
+        this.values = values;
+        this.bean = bean;
+    }
+
+    /**
+     * Create parameters with one value, others can be added by {@code with}
+     * @param name name of the parameter without colon
+     * @param value value of the parameter
+     * @return NamedParameters object
+     */
+    public static NamedParameters of(String name, Object value) {
+        return new NamedParameters(new LinkedHashMap<>(), null).with(name, value);
+    }
+
+    /**
+     * Create parameters with values of a map
+     * @param values values by names of parameters without colon, the map is copied
+     * @return NamedParameters object
+     */
+    public static NamedParameters of(Map<String, ?> values) {
+        if (values == null)
+            throw new IllegalArgumentException("Values cannot be null.");
+        return new NamedParameters(new LinkedHashMap<>(values), null);
+    }
+
+    /**
+     * Create parameters with values of properties of a bean
+     * @param bean java bean or record
+     * @return NamedParameters object
+     */
+    public static NamedParameters of(Object bean) {
+        if (bean == null)
+            throw new IllegalArgumentException("Bean cannot be null.");
+        if (bean instanceof Map)
+            throw new IllegalArgumentException("Use of(Map) for maps.");
+        return new NamedParameters(new LinkedHashMap<>(), bean);
+    }
+
+    /**
+     * add value of a parameter
+     * @param name name of the parameter without colon
+     * @param value value of the parameter
+     */
+    public NamedParameters with(String name, Object value) {
+        if (name == null)
+            throw new IllegalArgumentException("Name cannot be null.");
+        values.put(name, value);
+        return this;
+    }
+
+    /**
+     * Copy of parameters which isn't changed by {@code with} of this object
+     * @return NamedParameters object with the same values and the same bean
+     */
+    public NamedParameters copy() {
+        return new NamedParameters(new LinkedHashMap<>(values), bean);
+    }
+
+    /**
+     * Values of parameters which are used by the SQL. Values of a bean are read now,
+     * so the result isn't changed by later changes of the bean or by {@code with} of this object.
+     * @param sql SQL with named parameters
+     * @return NamedParameters object without a bean
+     * @throws IllegalArgumentException if there isn't a value of a parameter of the SQL
+     */
+    public NamedParameters resolve(String sql) {
+        String[] names = NamedSql.of(sql).getNames();
+        Map<String, Object> resolved = new LinkedHashMap<>(names.length * 2);
+        for (String name : names)
+            resolved.put(name, get(name));
+        return new NamedParameters(resolved, null);
+    }
+
+    /**
+     * Value of the parameter
+     * @throws IllegalArgumentException if there isn't such parameter
+     */
+    Object get(String name) {
+        Object value = values.get(name);
+        if (value != null || values.containsKey(name))
+            return value;
+
+        if (bean != null) {
+            MethodHandle getter = getters.get(bean.getClass()).get(normalize(name));
+            if (getter != null) {
+                try {
+                    return getter.invokeExact(bean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(String.format("Cannot read parameter %s of %s.",
+                            name, bean.getClass().getName()), e);
+                }
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("There isn't value of parameter :%s.", name));
+    }
+
+    /**
+     * Name of a parameter or a property without case and underscores, like it's done by BeanRowMapper
+     */
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    /**
+     * Public getters of the class and accessors of its fields like accessors of records
+     */
+    private static Map<String, MethodHandle> gettersOf(Class<?> type) {
+        Map<String, MethodHandle> result = new HashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                    || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class)
+                continue;
+
+            String name = method.getName();
+            String property;
+            if (name.startsWith("get") && name.length() > 3)
+                property = name.substring(3);
+            else if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class))
+                property = name.substring(2);
+            else if (hasField(type, name))
+                property = name;
+            else
+                continue;
+
+            try {
+                method.setAccessible(true);
+                result.putIfAbsent(normalize(property), lookup.unreflect(method).asType(GETTER_TYPE));
+            } catch (IllegalAccessException | RuntimeException e) {
+                // the getter isn't accessible, the parameter is reported as missing
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(name))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof NamedParameters))
+            return false;
+        NamedParameters other = (NamedParameters) o;
+        return values.equals(other.values) && Objects.equals(bean, other.bean);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * values.hashCode() + Objects.hashCode(bean);
+    }
+
+    @Override
+    public String toString() {
+        return bean == null ? values.toString() : values + " " + bean;
+    }
+}
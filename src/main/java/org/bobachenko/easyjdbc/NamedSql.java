@@ -0,0 +1,164 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQL with named parameters like {@code :name} which is compiled to SQL with positional parameters.
+ * Compiled statements are cached by the original text, so SQL is parsed only once.
+ *
+ * String literals, quoted identifiers, comments and casts like {@code ::text} are skipped.
+ * @author Maxim Bobachenko
+ */
+final class NamedSql {
+
+    /**
+     * The limit of the cache protects it from SQL which is built with inlined values
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    private static final Map<String, NamedSql> cache = new ConcurrentHashMap<>();
+
+    private final String sql;
+    private final String[] names;
+    private final int[][] positions;
+
+    private NamedSql(String sql, String[] names, int[][] positions) {
+        this.sql = sql;
+        this.names = names;
+        this.positions = positions;
+    }
+
+    /**
+     * Provides compiled SQL from the cache or compiles it
+     * @param sql SQL with named parameters
+     */
+    static NamedSql of(String sql) {
+        NamedSql named = cache.get(sql);
+        if (named == null) {
+            named = compile(sql);
+            // the full cache is started again, so queries which are used now are cached
+            if (cache.size() >= MAX_CACHE_SIZE)
+                cache.clear();
+            cache.putIfAbsent(sql, named);
+        }
+        return named;
+    }
+
+    /**
+     * Checks if parameters of a query are named
+     */
+    static boolean isNamed(Object[] params) {
+        return params != null && params.length == 1 && params[0] instanceof NamedParameters;
+    }
+
+    /**
+     * SQL with positional parameters
+     */
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * Names of parameters in the order of their first occurrence
+     */
+    String[] getNames() {
+        return names;
+    }
+
+    /**
+     * Positions of a parameter from 1, parameters can be used several times
+     * @param index index of the name in {@link #getNames()}
+     */
+    int[] getPositions(int index) {
+        return positions[index];
+    }
+
+    static NamedSql compile(String sql) {
+        if (sql == null)
+            throw new IllegalArgumentException("SQL cannot be null.");
+
+        StringBuilder result = new StringBuilder(sql.length());
+        Map<String, List<Integer>> index = new LinkedHashMap<>();
+        int position = 0;
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+            // literals, quoted names and comments are copied as is
+            int end = SqlScanner.skip(sql, i);
+
+            if (end > i) {
+                result.append(sql, i, end);
+                i = end;
+                continue;
+            }
+
+            if (c == ':' && i + 1 < length && sql.charAt(i + 1) == ':') {
+                end = i + 2;
+            } else if (c == ':' && i + 1 < length && isNameStart(sql.charAt(i + 1))) {
+                end = i + 2;
+                while (end < length && isNamePart(sql.charAt(end)))
+                    end++;
+                index.computeIfAbsent(sql.substring(i + 1, end), name -> new ArrayList<>()).add(++position);
+                result.append('?');
+                i = end;
+                continue;
+            } else if (c == '?') {
+                throw new IllegalArgumentException("Named and positional parameters cannot be mixed: " + sql);
+            } else {
+                end = i + 1;
+            }
+
+            result.append(sql, i, end);
+            i = end;
+        }
+
+        String[] names = index.keySet().toArray(new String[0]);
+        int[][] positions = new int[names.length][];
+        for (int n = 0; n < names.length; n++)
+            positions[n] = index.get(names[n]).stream().mapToInt(Integer::intValue).toArray();
+        return new NamedSql(result.toString(), names, positions);
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + Arrays.toString(names);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.sql.Types;
+
+/**
+ * Represents a typed NULL parameter.
+ * Use it instead of plain {@code null} if your driver needs to know the SQL type of NULL value.
+ * @author Maxim Bobachenko
+ */
+public final class NullValue {
+
+    private final int sqlType;
+
+    private NullValue(int sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    /**
+     * Create NULL parameter with the SQL type of a java type
+     * @param javaType java type of the value, its SQL type is taken from {@link ParameterBinders}
+     * @return NullValue object
+     */
+    public static NullValue of(Class<?> javaType) {
+        return new NullValue(ParameterBinders.sqlTypeOf(javaType));
+    }
+
+    /**
+     * Create NULL parameter with a given SQL type
+     * @param sqlType SQL type from {@link Types}
+     * @return NullValue object
+     */
+    public static NullValue ofSqlType(int sqlType) {
+        return new NullValue(sqlType);
+    }
+
+    /**
+     * SQL type from {@link Types}
+     */
+    int getSqlType() {
+        return sqlType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NullValue && ((NullValue) o).sqlType == sqlType;
+    }
+
+    @Override
+    public int hashCode() {
+        return sqlType;
+    }
+
+    @Override
+    public String toString() {
+        return "NULL";
+    }
+}
@@ -23,13 +23,14 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 
 package org.bobachenko.easyjdbc;
 
-import java.sql.*;
+import java.sql.SQLException;
 
 /**
- * Represents operation that executing inside the typical jdbc boilerplate code
+ * Represents operation that executing inside the typical jdbc boilerplate code.
+ * Statements and result sets which are opened by the operation have to be registered in the context.
  * @author Maxim Bobachenko
  */
 @FunctionalInterface
 interface Operation<T> {
-    T run(final Connection connection, final PreparedStatement statement, final ResultSet resultSet) throws SQLException;
+    T run(final ExecutionContext context) throws SQLException;
 }
@@ -0,0 +1,204 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.ParameterBinder;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of binders which set parameters of statements by java type of the value.
+ *
+ * A binder is resolved once for every java type and it's cached in a {@code ClassValue},
+ * so binding of a parameter doesn't depend on the number of registered types.
+ * If there isn't a binder for the type or its super types, the value is set by {@code setObject}.
+ * Enums don't have a binder, so drivers can map them to their own enum types; register a binder
+ * for {@code Enum.class} to set them by name or ordinal.
+ * @author Maxim Bobachenko
+ */
+public final class ParameterBinders {
+
+    private static final Binding OBJECT_BINDING = new Binding(Types.JAVA_OBJECT, PreparedStatement::setObject);
+
+    private static final Map<Class<?>, Binding> registered = new ConcurrentHashMap<>();
+
+    private static volatile ClassValue<Binding> resolved = newResolver();
+
+    static {
+        register(Boolean.class, Types.BOOLEAN, PreparedStatement::setBoolean);
+        register(Byte.class, Types.TINYINT, PreparedStatement::setByte);
+        register(Short.class, Types.SMALLINT, PreparedStatement::setShort);
+        register(Integer.class, Types.INTEGER, PreparedStatement::setInt);
+        register(Long.class, Types.BIGINT, PreparedStatement::setLong);
+        register(Float.class, Types.REAL, PreparedStatement::setFloat);
+        register(Double.class, Types.DOUBLE, PreparedStatement::setDouble);
+        register(BigDecimal.class, Types.DECIMAL, PreparedStatement::setBigDecimal);
+        register(BigInteger.class, Types.NUMERIC, (st, i, v) -> st.setBigDecimal(i, new BigDecimal(v)));
+        register(String.class, Types.VARCHAR, PreparedStatement::setString);
+        register(Character.class, Types.CHAR, (st, i, v) -> st.setString(i, String.valueOf(v)));
+
+        register(Date.class, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, new Timestamp(v.getTime())));
+        register(Timestamp.class, Types.TIMESTAMP, PreparedStatement::setTimestamp);
+        register(java.sql.Date.class, Types.DATE, PreparedStatement::setDate);
+        register(Time.class, Types.TIME, PreparedStatement::setTime);
+        register(Calendar.class, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, new Timestamp(v.getTimeInMillis())));
+        register(Instant.class, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, Timestamp.from(v)));
+        register(LocalDate.class, Types.DATE, (st, i, v) -> st.setDate(i, java.sql.Date.valueOf(v)));
+        register(LocalTime.class, Types.TIME, (st, i, v) -> st.setTime(i, Time.valueOf(v)));
+        register(LocalDateTime.class, Types.TIMESTAMP, (st, i, v) -> st.setTimestamp(i, Timestamp.valueOf(v)));
+        register(OffsetDateTime.class, Types.TIMESTAMP_WITH_TIMEZONE,
+                (st, i, v) -> st.setObject(i, v, Types.TIMESTAMP_WITH_TIMEZONE));
+        register(ZonedDateTime.class, Types.TIMESTAMP_WITH_TIMEZONE,
+                (st, i, v) -> st.setObject(i, v.toOffsetDateTime(), Types.TIMESTAMP_WITH_TIMEZONE));
+
+        // drivers map UUID to their own types, e.g. uuid of PostgreSQL, but not to OTHER
+        register(UUID.class, Types.OTHER, PreparedStatement::setObject);
+        register(byte[].class, Types.VARBINARY, PreparedStatement::setBytes);
+        register(InputStream.class, Types.LONGVARBINARY, PreparedStatement::setBinaryStream);
+        register(Reader.class, Types.LONGVARCHAR, PreparedStatement::setCharacterStream);
+        register(Blob.class, Types.BLOB, PreparedStatement::setBlob);
+        register(Clob.class, Types.CLOB, PreparedStatement::setClob);
+        register(java.sql.Array.class, Types.ARRAY, PreparedStatement::setArray);
+        register(Array.class, Types.ARRAY, (st, i, v) ->
+                st.setArray(i, st.getConnection().createArrayOf(v.getDbDatatype(), v.getValues())));
+    }
+
+    private ParameterBinders() {
+    }
+
+    /**
+     * Registers a binder for the java type. It's used for subtypes of the type too,
+     * if they don't have their own binders. A binder which is registered before is replaced.
+     * @param type java type of values
+     * @param sqlType SQL type from {@link Types}. It's used to set NULL value of this type
+     * @param binder class or lambda to set the value
+     * @param <T> java type of values
+     */
+    public static <T> void register(Class<T> type, int sqlType, ParameterBinder<? super T> binder) {
+        if (type == null || binder == null)
+            throw new IllegalArgumentException("Type and binder cannot be null.");
+
+        registered.put(type, new Binding(sqlType, binder));
+        // resolved binders of subtypes may be changed
+        resolved = newResolver();
+    }
+
+    /**
+     * Set the parameter of the statement by the binder of the value type
+     */
+    static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            // untyped null is left to the driver, NullValue sets the type explicitly
+            statement.setObject(index, null);
+        } else if (value instanceof NullValue) {
+            statement.setNull(index, ((NullValue) value).getSqlType());
+        } else {
+            resolved.get(value.getClass()).bind(statement, index, value);
+        }
+    }
+
+    /**
+     * SQL type of the java type
+     */
+    static int sqlTypeOf(Class<?> type) {
+        return resolved.get(type).sqlType;
+    }
+
+    private static ClassValue<Binding> newResolver() {
+        return new ClassValue<Binding>() {
+            @Override
+            protected Binding computeValue(Class<?> type) {
+                return resolve(type);
+            }
+        };
+    }
+
+    /**
+     * Finds a binder of the type, then of its superclasses and then of its interfaces
+     */
+    private static Binding resolve(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            Binding binding = registered.get(current);
+            if (binding != null)
+                return binding;
+        }
+
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass())
+            Collections.addAll(interfaces, current.getInterfaces());
+
+        while (!interfaces.isEmpty()) {
+            Class<?> current = interfaces.poll();
+            Binding binding = registered.get(current);
+            if (binding != null)
+                return binding;
+            Collections.addAll(interfaces, current.getInterfaces());
+        }
+
+        // If it's another type, we have to rely on JDBC
+        return OBJECT_BINDING;
+    }
+
+    /**
+     * Binder with SQL type
+     */
+    private static final class Binding {
+        private final int sqlType;
+        private final ParameterBinder<Object> binder;
+
+        @SuppressWarnings("unchecked")
+        Binding(int sqlType, ParameterBinder<?> binder) {
+            this.sqlType = sqlType;
+            this.binder = (ParameterBinder<Object>) binder;
+        }
+
+        void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+            binder.bind(statement, index, value);
+        }
+    }
+}
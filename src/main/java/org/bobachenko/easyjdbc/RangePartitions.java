@@ -0,0 +1,227 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.exception.EasySqlException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Split of a query by ranges of a numeric key. Every partition is the query restricted by
+ * {@code key BETWEEN from AND to}, partitions are run concurrently on their own connections.
+ *
+ * @author Maxim Bobachenko
+ */
+final class RangePartitions {
+
+    private static final String FROM = "easyJdbcPartitionFrom";
+    private static final String TO = "easyJdbcPartitionTo";
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+
+    /*
+        Threads are created on demand and die after a minute without work. The pool is shared, so the number
+        of threads isn't limited here, every query limits its own workers by its parallelism.
+     */
+    private static final ExecutorService executor;
+
+    static {
+        AtomicInteger number = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "easy-jdbc-partition-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final String sql;
+    private final Object[] params;
+    private final boolean named;
+    private final long[] bounds;
+
+    /**
+     * @param sql query to split
+     * @param keyColumn numeric column selected by the query
+     * @param min the minimum value of the key, inclusive
+     * @param max the maximum value of the key, inclusive
+     * @param partitions the number of partitions, it's reduced if the range is smaller
+     * @param params parameters of the query
+     */
+    RangePartitions(String sql, String keyColumn, long min, long max, int partitions, Object[] params) {
+        if (sql == null)
+            throw new IllegalArgumentException("SQL cannot be null.");
+        if (keyColumn == null || !COLUMN.matcher(keyColumn).matches())
+            throw new IllegalArgumentException(String.format("Wrong key column: %s.", keyColumn));
+        if (max < min)
+            throw new IllegalArgumentException(String.format("Wrong range: min %d, max %d.", min, max));
+        if (partitions <= 0)
+            throw new IllegalArgumentException("The number of partitions must be positive.");
+
+        this.named = NamedSql.isNamed(params);
+        String column = keyColumn.substring(keyColumn.indexOf('.') + 1);
+        String query = sql.trim();
+        if (query.endsWith(";"))
+            query = query.substring(0, query.length() - 1);
+        this.sql = String.format("SELECT * FROM (%s) easy_jdbc_partition WHERE easy_jdbc_partition.%s BETWEEN %s AND %s",
+                query, column, named ? ":" + FROM : "?", named ? ":" + TO : "?");
+        this.params = params == null ? new Object[0] : params;
+        this.bounds = split(min, max, partitions);
+    }
+
+    /**
+     * Lower bounds of partitions and the upper bound of the last one
+     */
+    private static long[] split(long min, long max, int partitions) {
+        // the width is computed in unsigned arithmetic, because max - min can overflow a long
+        long span = max - min;
+        long count = Long.compareUnsigned(span, partitions - 1) < 0 ? span + 1 : partitions;
+        long width = Long.divideUnsigned(span, count);
+        long remainder = Long.remainderUnsigned(span, count);
+
+        long[] bounds = new long[(int) count + 1];
+        long from = min;
+        for (int i = 0; i < count; i++) {
+            bounds[i] = from;
+            // the first partitions take one more key for the remainder
+            from = from + width + (i < remainder ? 1 : 0);
+        }
+        bounds[(int) count] = max;
+        return bounds;
+    }
+
+    int size() {
+        return bounds.length - 1;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * Parameters of the query with the range of the partition
+     */
+    Object[] getParams(int partition) {
+        long from = bounds[partition];
+        long to = partition == size() - 1 ? bounds[partition + 1] : bounds[partition + 1] - 1;
+        if (named)
+            return new Object[]{((NamedParameters) params[0]).copy().with(FROM, from).with(TO, to)};
+
+        Object[] result = Arrays.copyOf(params, params.length + 2);
+        result[params.length] = from;
+        result[params.length + 1] = to;
+        return result;
+    }
+
+    /**
+     * Runs the query for every partition. Partitions are taken from a common queue by at most
+     * {@code parallelism} workers, the calling thread is one of them.
+     * If a partition fails, partitions which haven't started are skipped, running ones are awaited
+     * and the first failure is thrown.
+     * @param parallelism the maximum number of partitions run at the same time, 1 runs them one by one
+     * @param query the query of one partition, it takes SQL and parameters
+     * @return results of partitions in the order of ranges
+     */
+    <R> List<R> run(int parallelism, BiFunction<String, Object[], R> query) {
+        int size = size();
+        List<R> results = new ArrayList<>(size);
+        if (parallelism <= 1 || size == 1) {
+            for (int i = 0; i < size; i++)
+                results.add(query.apply(sql, getParams(i)));
+            return results;
+        }
+
+        Object[] partitionResults = new Object[size];
+        AtomicInteger next = new AtomicInteger();
+        // a failed partition stops partitions which haven't started yet
+        AtomicBoolean failed = new AtomicBoolean();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < size && !failed.get(); i = next.getAndIncrement())
+                partitionResults[i] = apply(query, getParams(i), failed);
+        };
+
+        int workers = Math.min(parallelism, size);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers - 1);
+        Throwable failure = null;
+        try {
+            for (int i = 1; i < workers; i++)
+                futures.add(CompletableFuture.runAsync(worker, executor));
+            worker.run();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        // running partitions are awaited even after a failure, so no connection is used after the return
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                failure = addFailure(failure, e.getCause());
+            }
+        }
+
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new EasySqlException(failure.getMessage(), failure);
+
+        for (Object result : partitionResults) {
+            @SuppressWarnings("unchecked")
+            R partitionResult = (R) result;
+            results.add(partitionResult);
+        }
+        return results;
+    }
+
+    private <R> R apply(BiFunction<String, Object[], R> query, Object[] partitionParams, AtomicBoolean failed) {
+        try {
+            return query.apply(sql, partitionParams);
+        } catch (RuntimeException | Error e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private static Throwable addFailure(Throwable failure, Throwable another) {
+        if (failure == null)
+            return another;
+        if (failure != another)
+            failure.addSuppressed(another);
+        return failure;
+    }
+}
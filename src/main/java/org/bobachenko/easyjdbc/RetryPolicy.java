@@ -0,0 +1,202 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Policy of retries of a transaction which failed because of a deadlock or a serialization failure.
+ * Failures are classified by SQLState of the {@code SQLException} in the chain of causes,
+ * {@code SQLTransactionRollbackException} is always transient.
+ *
+ * Delays between attempts grow exponentially, every delay is chosen randomly between a half
+ * and the whole of the current backoff, so concurrent transactions don't retry at the same time.
+ * The policy is thread-safe and can be shared by transactions.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class RetryPolicy {
+
+    /**
+     * SQLStates of serialization failures and deadlocks
+     */
+    public static final Set<String> TRANSIENT_SQL_STATES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("40001", "40P01")));
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Set<String> sqlStates;
+    private final LongAdder retries = new LongAdder();
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.sqlStates = builder.sqlStates;
+    }
+
+    /**
+     * Policy with default backoff
+     * @param maxAttempts the maximum number of attempts including the first one
+     */
+    public static RetryPolicy of(int maxAttempts) {
+        return builder().maxAttempts(maxAttempts).build();
+    }
+
+    /**
+     * Settings of a policy
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the maximum number of attempts including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return the number of retries made by all transactions with the policy
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @param e failure of a transaction
+     * @return true if the failure is a deadlock or a serialization failure
+     */
+    public boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransactionRollbackException)
+                return true;
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlStates.contains(sqlState))
+                    return true;
+            }
+            if (cause.getCause() == cause)
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Decides if the failed attempt must be retried. If it must, waits for the backoff and counts the retry.
+     * @param e failure of the attempt
+     * @param attempt the number of the failed attempt, the first one is 1
+     * @return true if the transaction must be run again
+     */
+    boolean awaitRetry(Throwable e, int attempt) {
+        if (attempt >= maxAttempts || !isTransient(e))
+            return false;
+
+        long backoff = backoffMillis(attempt);
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    private long backoffMillis(int attempt) {
+        long backoff = initialBackoffMillis;
+        for (int i = 1; i < attempt && backoff < maxBackoffMillis; i++)
+            backoff *= 2;
+        return Math.min(backoff, maxBackoffMillis);
+    }
+
+    /**
+     * Settings of the policy
+     */
+    public static final class Builder {
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 10;
+        private long maxBackoffMillis = 1000;
+        private Set<String> sqlStates = TRANSIENT_SQL_STATES;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxAttempts the maximum number of attempts including the first one. Default is 3.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param millis backoff before the first retry, it's doubled for every next retry. Default is 10 ms.
+         */
+        public Builder initialBackoff(long millis) {
+            this.initialBackoffMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param millis the maximum backoff. Default is 1 second.
+         */
+        public Builder maxBackoff(long millis) {
+            this.maxBackoffMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param sqlStates SQLStates of transient failures. Default is {@link #TRANSIENT_SQL_STATES}.
+         */
+        public Builder sqlStates(Set<String> sqlStates) {
+            if (sqlStates == null)
+                throw new IllegalArgumentException("SQLStates cannot be null.");
+            this.sqlStates = Collections.unmodifiableSet(new HashSet<>(sqlStates));
+            return this;
+        }
+
+        /**
+         * @return a new policy
+         */
+        public RetryPolicy build() {
+            if (maxAttempts <= 0)
+                throw new IllegalArgumentException("The maximum number of attempts must be positive.");
+            if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis)
+                throw new IllegalArgumentException(String.format("Wrong backoff: initial %d ms, max %d ms.",
+                        initialBackoffMillis, maxBackoffMillis));
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
+import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * {@link EasyJdbc} which sends queries to replicas and modifications to the primary database.
+ *
+ * Replica connections are read only. A replica is chosen for every query by round-robin,
+ * or as the replica with the least number of connections in use. Without replicas all operations
+ * go to the primary. Transactions are created by {@link #transaction()} and always use the primary,
+ * so reads inside a transaction see its writes.
+ *
+ * Replicas may lag behind the primary, so a query right after an update may not see it.
+ * Use {@link #getPrimary()} for such reads.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class RoutingEasyJdbc implements EasyJdbc {
+
+    /**
+     * How a replica is chosen for a query
+     */
+    public enum Balancing {
+        /**
+         * Replicas are used in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * The replica with the least number of connections in use, ties are broken in turn
+         */
+        LEAST_OUTSTANDING
+    }
+
+    private final DataSource primaryDataSource;
+    private final EasyJdbcImpl primary;
+    private final ReplicaConnectionManager[] replicaManagers;
+    private final EasyJdbcImpl[] replicas;
+    private final Balancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private RoutingEasyJdbc(Builder builder) {
+        this.primaryDataSource = builder.primary;
+        this.primary = new EasyJdbcImpl(new DataSourceConnectionManager(builder.primary), builder.listener);
+        this.replicaManagers = new ReplicaConnectionManager[builder.replicas.size()];
+        this.replicas = new EasyJdbcImpl[replicaManagers.length];
+        for (int i = 0; i < replicas.length; i++) {
+            replicaManagers[i] = new ReplicaConnectionManager(builder.replicas.get(i));
+            replicas[i] = new EasyJdbcImpl(replicaManagers[i], builder.listener);
+        }
+        this.balancing = builder.balancing;
+    }
+
+    /**
+     * Settings of routing
+     * @param primary data source of the primary database
+     */
+    public static Builder builder(DataSource primary) {
+        return new Builder(primary);
+    }
+
+    /**
+     * @return EasyJdbc of the primary database
+     */
+    public EasyJdbc getPrimary() {
+        return primary;
+    }
+
+    /**
+     * @return a new transaction on the primary database
+     */
+    public EasyTransaction transaction() {
+        return EasyTransaction.of(primaryDataSource);
+    }
+
+    /**
+     * @param isolationLevel isolation level
+     * @return a new transaction on the primary database
+     */
+    public EasyTransaction transaction(IsolationLevel isolationLevel) {
+        return EasyTransaction.of(primaryDataSource, isolationLevel);
+    }
+
+    private EasyJdbc replica() {
+        int count = replicas.length;
+        if (count == 0)
+            return primary;
+
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        if (balancing == Balancing.ROUND_ROBIN || count == 1)
+            return replicas[start];
+
+        int best = start;
+        int bestOutstanding = replicaManagers[start].getOutstanding();
+        for (int i = 1; i < count && bestOutstanding > 0; i++) {
+            int index = (start + i) % count;
+            int outstanding = replicaManagers[index].getOutstanding();
+            if (outstanding < bestOutstanding) {
+                best = index;
+                bestOutstanding = outstanding;
+            }
+        }
+        return replicas[best];
+    }
+
+    @Override
+    public <T> Optional<T> queryResult(String sql, ResultMapper<T> mapper, Object... params) {
+        return replica().queryResult(sql, mapper, params);
+    }
+
+    @Override
+    public <T> Optional<T> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params) {
+        return replica().queryScalar(sql, typeOfReturnValue, params);
+    }
+
+    @Override
+    public OptionalLong queryLong(String sql, Object... params) {
+        return replica().queryLong(sql, params);
+    }
+
+    @Override
+    public OptionalInt queryInt(String sql, Object... params) {
+        return replica().queryInt(sql, params);
+    }
+
+    @Override
+    public OptionalDouble queryDouble(String sql, Object... params) {
+        return replica().queryDouble(sql, params);
+    }
+
+    @Override
+    public long[] queryLongArray(String sql, Object... params) {
+        return replica().queryLongArray(sql, params);
+    }
+
+    @Override
+    public <T> Optional<T> queryObject(String sql, RowMapper<T> mapper, Object... params) {
+        return replica().queryObject(sql, mapper, params);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryAssoc(String sql, Object... params) {
+        return replica().queryAssoc(sql, params);
+    }
+
+    @Override
+    public <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) {
+        return replica().queryList(sql, mapper, params);
+    }
+
+    @Override
+    public ColumnarResult queryColumns(String sql, Object... params) {
+        return replica().queryColumns(sql, params);
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, RowMapper<T> mapper, Object... params) {
+        return replica().queryStream(sql, mapper, params);
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return replica().queryStream(sql, fetchSize, mapper, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, RowCallback callback, Object... params) {
+        return replica().forEachRow(sql, callback, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, int fetchSize, RowCallback callback, Object... params) {
+        return replica().forEachRow(sql, fetchSize, callback, params);
+    }
+
+    @Override
+    public <T> List<T> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                        RowMapper<T> mapper, Object... params) {
+        return replica().queryPartitioned(sql, keyColumn, min, max, partitions, mapper, params);
+    }
+
+    @Override
+    public int forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                     RowCallback callback, Object... params) {
+        return replica().forEachRowPartitioned(sql, keyColumn, min, max, partitions, callback, params);
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, Class<T> typeOfNotCompositePrimaryKey, Object... params) {
+        return primary.create(sql, typeOfNotCompositePrimaryKey, params);
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params) {
+        return primary.create(sql, compositeKeyMapper, params);
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, Class<T> typeOfNotCompositePrimaryKey) {
+        return primary.createBatch(sql, rows, typeOfNotCompositePrimaryKey);
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper) {
+        return primary.createBatch(sql, rows, compositeKeyMapper);
+    }
+
+    @Override
+    public int update(String sql, Object... params) {
+        return primary.update(sql, params);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows) {
+        return primary.updateBatch(sql, rows);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows, int batchSize) {
+        return primary.updateBatch(sql, rows, batchSize);
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows) {
+        return primary.insertBulk(sql, rows);
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows, int maxParameters) {
+        return primary.insertBulk(sql, rows, maxParameters);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper) {
+        return primary.updateBatch(sql, items, mapper);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper, int batchSize) {
+        return primary.updateBatch(sql, items, mapper, batchSize);
+    }
+
+    /**
+     * Settings of routing
+     */
+    public static final class Builder {
+        private final DataSource primary;
+        private final List<DataSource> replicas = new ArrayList<>();
+        private Balancing balancing = Balancing.ROUND_ROBIN;
+        private ExecutionListener listener;
+
+        private Builder(DataSource primary) {
+            if (primary == null)
+                throw new IllegalArgumentException("The primary parameter cannot be null.");
+            this.primary = primary;
+        }
+
+        /**
+         * @param replica data source of a replica
+         */
+        public Builder replica(DataSource replica) {
+            if (replica == null)
+                throw new IllegalArgumentException("The replica parameter cannot be null.");
+            replicas.add(replica);
+            return this;
+        }
+
+        /**
+         * @param balancing how a replica is chosen for a query. Default is {@link Balancing#ROUND_ROBIN}.
+         */
+        public Builder balancing(Balancing balancing) {
+            if (balancing == null)
+                throw new IllegalArgumentException("Balancing cannot be null.");
+            this.balancing = balancing;
+            return this;
+        }
+
+        /**
+         * @param listener listener of operations on all databases. Default is none.
+         */
+        public Builder listener(ExecutionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @return a new EasyJdbc
+         */
+        public RoutingEasyJdbc build() {
+            return new RoutingEasyJdbc(this);
+        }
+    }
+}
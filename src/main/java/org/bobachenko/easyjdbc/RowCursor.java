@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Open result set of a lazy query with the context of its operation.
+ * Rows are read on demand, JDBC objects are released when the rows are over or the cursor is closed.
+ * It's not thread safe.
+ * @author Maxim Bobachenko
+ */
+final class RowCursor<T> implements AutoCloseable {
+    private final ExecutionContext context;
+    private final ResultSet resultSet;
+    private final RowMapper<T> mapper;
+    private int rowNum = 0;
+    private boolean closed = false;
+
+    RowCursor(ExecutionContext context, ResultSet resultSet, RowMapper<T> mapper) {
+        this.context = context;
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Moves to the next row. The cursor is closed if there aren't more rows.
+     * @return true if there is a row
+     */
+    boolean next() throws SQLException {
+        if (closed)
+            return false;
+        if (resultSet.next())
+            return true;
+        close();
+        return false;
+    }
+
+    /**
+     * Maps the current row
+     */
+    T get() throws SQLException {
+        return mapper.map(resultSet, rowNum++);
+    }
+
+    /**
+     * Changes the number of rows which are fetched from the database at once by next fetches
+     */
+    void setFetchSize(int fetchSize) throws SQLException {
+        if (!closed)
+            resultSet.setFetchSize(fetchSize);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            context.close();
+        }
+    }
+}
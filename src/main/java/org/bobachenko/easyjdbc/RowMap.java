@@ -0,0 +1,248 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Map of one row which is a view over values of columns.
+ * All rows of one result set share the same immutable table of column names,
+ * so a row holds only an array of values. Columns are iterated in the order of names
+ * as in a {@code TreeMap}.
+ *
+ * Values can be replaced in place by {@code put} or by {@code Entry.setValue}.
+ * The first change of keys, e.g. adding or removing a column, copies the row to a {@code TreeMap}
+ * and the row works with the copy after that.
+ * @author Maxim Bobachenko
+ */
+final class RowMap extends AbstractMap<String, Object> {
+
+    private final Columns columns;
+    private final Object[] values;
+    private Set<Entry<String, Object>> entrySet;
+    private Map<String, Object> copy;
+
+    RowMap(Columns columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Reads the current row of the result set
+     */
+    static RowMap read(Columns columns, ResultSet resultSet) throws SQLException {
+        Object[] values = new Object[columns.names.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = resultSet.getObject(columns.indexes[i]);
+        return new RowMap(columns, values);
+    }
+
+    @Override
+    public int size() {
+        return copy != null ? copy.size() : values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return copy != null ? copy.containsKey(key) : columns.positions.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (copy != null)
+            return copy.get(key);
+        Integer position = columns.positions.get(key);
+        return position == null ? null : values[position];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Integer position = copy != null ? null : columns.positions.get(key);
+        if (position == null)
+            return mutable().put(key, value);
+        Object old = values[position];
+        values[position] = value;
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return containsKey(key) ? mutable().remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        mutable().clear();
+    }
+
+    /**
+     * Copies the row to a map which can change keys
+     */
+    private Map<String, Object> mutable() {
+        if (copy == null) {
+            Map<String, Object> map = new TreeMap<>();
+            for (int i = 0; i < values.length; i++)
+                map.put(columns.names[i], values[i]);
+            copy = map;
+        }
+        return copy;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (copy != null)
+            return copy.entrySet();
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    if (copy != null)
+                        return copy.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        private int position = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return position < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            return new ColumnEntry(position++);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (position == 0)
+                                throw new IllegalStateException();
+                            mutable().remove(columns.names[position - 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return RowMap.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Entry which writes through to the row or to its copy
+     */
+    private final class ColumnEntry implements Entry<String, Object> {
+        private final int position;
+
+        ColumnEntry(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public String getKey() {
+            return columns.names[position];
+        }
+
+        @Override
+        public Object getValue() {
+            return copy != null ? copy.get(getKey()) : values[position];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            if (copy != null)
+                return copy.put(getKey(), value);
+            Object old = values[position];
+            values[position] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) &&
+                    (getValue() == null ? entry.getValue() == null : getValue().equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Immutable table of column names of a result set sorted by names.
+     * If names are repeated, the first column is used.
+     */
+    static final class Columns {
+        private final String[] names;
+        private final int[] indexes;
+        private final Map<String, Integer> positions;
+
+        private Columns(String[] names, int[] indexes, Map<String, Integer> positions) {
+            this.names = names;
+            this.indexes = indexes;
+            this.positions = positions;
+        }
+
+        static Columns of(ResultSetMetaData metaData) throws SQLException {
+            int columnCount = metaData.getColumnCount();
+            Map<String, Integer> sorted = new TreeMap<>();
+            for (int i = 1; i <= columnCount; i++)
+                sorted.putIfAbsent(metaData.getColumnName(i), i);
+
+            String[] names = new String[sorted.size()];
+            int[] indexes = new int[sorted.size()];
+            Map<String, Integer> positions = new HashMap<>(sorted.size() * 2);
+            int position = 0;
+            for (Map.Entry<String, Integer> column : sorted.entrySet()) {
+                names[position] = column.getKey();
+                indexes[position] = column.getValue();
+                positions.put(column.getKey(), position);
+                position++;
+            }
+            return new Columns(names, indexes, positions);
+        }
+    }
+}
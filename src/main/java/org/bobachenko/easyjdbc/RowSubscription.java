@@ -0,0 +1,192 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.exception.EasySqlException;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Subscription to rows of a query which reads the cursor only when the subscriber requests rows.
+ * It follows the rules of Reactive Streams and is the base of {@code QueryPublisher} on Java 9 and later.
+ *
+ * The query is executed by the first request, the fetch size is taken from the requested number of rows.
+ * When all requested rows are delivered, reading stops, but the cursor and the connection are kept open
+ * until next request. They are closed when the rows are over, on error or on cancel.
+ *
+ * Rows are read and delivered by the executor. Only one task reads the cursor at the same time,
+ * requests from {@code onNext} don't cause recursion.
+ * @author Maxim Bobachenko
+ */
+final class RowSubscription<T> {
+
+    /**
+     * Receiver of rows
+     */
+    interface Sink<T> {
+        void onNext(T item);
+
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    private final IntFunction<RowCursor<T>> opener;
+    private final Sink<T> sink;
+    private final Executor executor;
+    private final int maxFetchSize;
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable wrongRequest;
+
+    // these fields are accessed only by the task which holds the work counter
+    private RowCursor<T> cursor;
+    private boolean done;
+
+    /**
+     * @param opener function which executes the query with a fetch size
+     * @param sink receiver of rows
+     * @param executor executor of reading, {@code Runnable::run} reads in the thread of the request
+     * @param maxFetchSize the maximum number of rows which are fetched at once
+     */
+    RowSubscription(IntFunction<RowCursor<T>> opener, Sink<T> sink, Executor executor, int maxFetchSize) {
+        this.opener = opener;
+        this.sink = sink;
+        this.executor = executor;
+        this.maxFetchSize = maxFetchSize;
+    }
+
+    /**
+     * Adds the number of rows to the demand
+     */
+    void request(long n) {
+        if (n <= 0) {
+            wrongRequest = new IllegalArgumentException("The number of requested rows must be positive, " +
+                    "but it's " + n + ".");
+        } else {
+            long current;
+            long next;
+            do {
+                current = demand.get();
+                if (current == Long.MAX_VALUE)
+                    break;
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!demand.compareAndSet(current, next));
+        }
+        schedule();
+    }
+
+    /**
+     * Stops reading and releases the cursor
+     */
+    void cancel() {
+        cancelled = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (work.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                cancelled = true;
+                sink.onError(e);
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            if (!done)
+                step();
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Delivers rows which are requested at this moment
+     */
+    private void step() {
+        try {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            Throwable error = wrongRequest;
+            if (error != null) {
+                finish();
+                sink.onError(error);
+                return;
+            }
+
+            long requested = demand.get();
+            if (requested == 0)
+                return;
+
+            int fetchSize = (int) Math.min(requested, maxFetchSize);
+            if (cursor == null)
+                cursor = opener.apply(fetchSize);
+            else
+                cursor.setFetchSize(fetchSize);
+
+            long emitted = 0;
+            while (emitted < requested) {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (!cursor.next()) {
+                    finish();
+                    sink.onComplete();
+                    return;
+                }
+                sink.onNext(cursor.get());
+                emitted++;
+            }
+
+            if (requested != Long.MAX_VALUE)
+                demand.addAndGet(-emitted);
+        } catch (SQLException e) {
+            finish();
+            sink.onError(new EasySqlException(e.getMessage(), e));
+        } catch (Throwable e) {
+            finish();
+            sink.onError(e);
+        }
+    }
+
+    private void finish() {
+        done = true;
+        if (cursor != null)
+            cursor.close();
+    }
+}
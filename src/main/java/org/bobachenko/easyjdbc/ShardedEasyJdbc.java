@@ -0,0 +1,332 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.exception.EasySqlException;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Data split by a key across several databases.
+ *
+ * Operations on one shard use {@link #shard(Object)}, which finds the database of the key.
+ * Cross-shard queries are run on all shards in parallel: the calling thread queries the first shard
+ * and threads of a bounded pool query the others, so the latency is the one of the slowest shard.
+ * When the pool is saturated, the calling thread runs the queries itself.
+ * Results are concatenated in the order of shards, or merged by a comparator if every shard returns
+ * rows in the same order.
+ *
+ * @param <K> type of the shard key
+ * @author Maxim Bobachenko
+ */
+public final class ShardedEasyJdbc<K> implements AutoCloseable {
+
+    private final Function<? super K, ? extends DataSource> shardOf;
+    private final Map<DataSource, EasyJdbc> jdbcs = new IdentityHashMap<>();
+    private final List<EasyJdbc> shards;
+    private final ThreadPoolExecutor executor;
+
+    private ShardedEasyJdbc(Builder<K> builder) {
+        this.shardOf = builder.shardOf;
+        List<EasyJdbc> shards = new ArrayList<>(builder.shards.size());
+        for (DataSource dataSource : builder.shards) {
+            EasyJdbc jdbc = jdbcs.computeIfAbsent(dataSource, ds -> EasyJdbc.of(ds, builder.listener));
+            if (!shards.contains(jdbc))
+                shards.add(jdbc);
+        }
+        this.shards = Collections.unmodifiableList(shards);
+
+        int threads = builder.threads > 0 ? builder.threads : Math.max(1, shards.size() - 1);
+        AtomicInteger number = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(builder.queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "easy-jdbc-shard-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Settings of sharding
+     * @param shardOf function which finds the database of a shard key, it must return one of the shards
+     * @param shards databases of all shards
+     * @param <K> type of the shard key
+     */
+    public static <K> Builder<K> builder(Function<? super K, ? extends DataSource> shardOf,
+                                         Collection<? extends DataSource> shards) {
+        return new Builder<>(shardOf, shards);
+    }
+
+    /**
+     * @param key shard key
+     * @return EasyJdbc of the shard of the key
+     */
+    public EasyJdbc shard(K key) {
+        DataSource dataSource = shardOf.apply(key);
+        EasyJdbc jdbc = jdbcs.get(dataSource);
+        if (jdbc == null)
+            throw new IllegalArgumentException(String.format("Key %s doesn't belong to any shard.", key));
+        return jdbc;
+    }
+
+    /**
+     * @return EasyJdbc of every shard in the order of shards
+     */
+    public List<EasyJdbc> getShards() {
+        return shards;
+    }
+
+    /**
+     * Runs a query on all shards in parallel.
+     * @param sql a query to execute
+     * @param mapper class or lambda to map each row of a result set
+     * @param params parameters for the query
+     * @return rows of all shards in the order of shards
+     */
+    public <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) {
+        return concat(scatter(jdbc -> jdbc.queryList(sql, mapper, params)));
+    }
+
+    /**
+     * Runs a query on all shards in parallel and merges sorted results.
+     * @param sql a query to execute, it must sort rows in the same order as the comparator
+     * @param order order of rows of every shard
+     * @param mapper class or lambda to map each row of a result set
+     * @param params parameters for the query
+     * @return rows of all shards in the order
+     */
+    public <T> List<T> queryListOrdered(String sql, Comparator<? super T> order, RowMapper<T> mapper,
+                                        Object... params) {
+        if (order == null)
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        return merge(scatter(jdbc -> jdbc.queryList(sql, mapper, params)), order);
+    }
+
+    /**
+     * Runs a query on all shards in parallel.
+     * @param sql a query to execute
+     * @param params parameters for the query
+     * @return rows of all shards in the order of shards
+     */
+    public List<Map<String, Object>> queryAssoc(String sql, Object... params) {
+        return concat(scatter(jdbc -> jdbc.queryAssoc(sql, params)));
+    }
+
+    /**
+     * Runs a query on all shards in parallel and merges sorted results.
+     * @param sql a query to execute, it must sort rows in the same order as the comparator
+     * @param order order of rows of every shard
+     * @param params parameters for the query
+     * @return rows of all shards in the order
+     */
+    public List<Map<String, Object>> queryAssocOrdered(String sql, Comparator<? super Map<String, Object>> order,
+                                                       Object... params) {
+        if (order == null)
+            throw new IllegalArgumentException("Comparator cannot be null.");
+        return merge(scatter(jdbc -> jdbc.queryAssoc(sql, params)), order);
+    }
+
+    /**
+     * Stops threads of the pool
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the query on all shards, the first one is queried by the calling thread.
+     * If a shard fails, queries which haven't started are cancelled and the failure is thrown.
+     */
+    private <R> List<R> scatter(Function<EasyJdbc, R> query) {
+        List<Future<R>> futures = new ArrayList<>(shards.size() - 1);
+        try {
+            for (int i = 1; i < shards.size(); i++) {
+                EasyJdbc jdbc = shards.get(i);
+                futures.add(executor.submit(() -> query.apply(jdbc)));
+            }
+
+            List<R> results = new ArrayList<>(shards.size());
+            results.add(query.apply(shards.get(0)));
+            for (Future<R> future : futures)
+                results.add(await(future));
+            return results;
+        } catch (RuntimeException | Error e) {
+            for (Future<R> future : futures)
+                future.cancel(false);
+            throw e;
+        }
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cross-shard query was interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new EasySqlException(cause.getMessage(), cause);
+        }
+    }
+
+    private static <T> List<T> concat(List<List<T>> results) {
+        if (results.size() == 1)
+            return results.get(0);
+
+        int size = 0;
+        for (List<T> result : results)
+            size += result.size();
+        List<T> rows = new ArrayList<>(size);
+        for (List<T> result : results)
+            rows.addAll(result);
+        return rows;
+    }
+
+    /**
+     * K-way merge of sorted results, rows with equal keys keep the order of shards
+     */
+    private static <T> List<T> merge(List<List<T>> results, Comparator<? super T> order) {
+        if (results.size() == 1)
+            return results.get(0);
+
+        int size = 0;
+        for (List<T> result : results)
+            size += result.size();
+
+        PriorityQueue<Cursor<T>> cursors = new PriorityQueue<>(results.size(), (a, b) -> {
+            int compare = order.compare(a.current(), b.current());
+            return compare != 0 ? compare : Integer.compare(a.shard, b.shard);
+        });
+        for (int i = 0; i < results.size(); i++)
+            if (!results.get(i).isEmpty())
+                cursors.add(new Cursor<>(i, results.get(i)));
+
+        List<T> rows = new ArrayList<>(size);
+        while (!cursors.isEmpty()) {
+            Cursor<T> cursor = cursors.poll();
+            rows.add(cursor.current());
+            if (++cursor.position < cursor.rows.size())
+                cursors.add(cursor);
+        }
+        return rows;
+    }
+
+    /**
+     * Position in the result of a shard
+     */
+    private static final class Cursor<T> {
+        private final int shard;
+        private final List<T> rows;
+        private int position;
+
+        Cursor(int shard, List<T> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        T current() {
+            return rows.get(position);
+        }
+    }
+
+    /**
+     * Settings of sharding
+     */
+    public static final class Builder<K> {
+        private final Function<? super K, ? extends DataSource> shardOf;
+        private final List<DataSource> shards;
+        private int threads;
+        private int queueCapacity = 1000;
+        private ExecutionListener listener;
+
+        private Builder(Function<? super K, ? extends DataSource> shardOf, Collection<? extends DataSource> shards) {
+            if (shardOf == null)
+                throw new IllegalArgumentException("The shardOf parameter cannot be null.");
+            if (shards == null || shards.isEmpty())
+                throw new IllegalArgumentException("Shards cannot be empty.");
+            if (shards.contains(null))
+                throw new IllegalArgumentException("Shards cannot contain null.");
+            this.shardOf = shardOf;
+            this.shards = new ArrayList<>(shards);
+        }
+
+        /**
+         * @param threads the number of threads of cross-shard queries. Default is the number of shards minus one,
+         *                because the calling thread queries one of shards.
+         */
+        public Builder<K> threads(int threads) {
+            if (threads <= 0)
+                throw new IllegalArgumentException("The number of threads must be positive.");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the number of shard queries waiting for a thread, when it's reached
+         *                      the calling thread runs them itself. Default is 1000.
+         */
+        public Builder<K> queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0)
+                throw new IllegalArgumentException("The queue capacity must be positive.");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param listener listener of operations on all shards. Default is none.
+         */
+        public Builder<K> listener(ExecutionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @return a new sharded EasyJdbc
+         */
+        public ShardedEasyJdbc<K> build() {
+            return new ShardedEasyJdbc<>(this);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+/**
+ * Skips string literals, quoted identifiers and comments of SQL. It's shared by parsers of the library,
+ * so they treat quotes and comments the same way. It isn't a part of the public API.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class SqlScanner {
+
+    private SqlScanner() {
+    }
+
+    /**
+     * @param sql SQL text
+     * @param start position in the SQL
+     * @return position after a literal, a name in {@code "} or {@code `} quotes or a comment which starts
+     * at the position, or the same position if there isn't one
+     */
+    public static int skip(String sql, int start) {
+        char c = sql.charAt(start);
+        if (c == '\'' || c == '"' || c == '`')
+            return skipQuoted(sql, start, c);
+        return skipComment(sql, start);
+    }
+
+    /**
+     * @param sql SQL text
+     * @param start position in the SQL
+     * @return position after a {@code --} or a {@code /* *}{@code /} comment which starts at the position,
+     * or the same position if there isn't one
+     */
+    public static int skipComment(String sql, int start) {
+        int length = sql.length();
+        if (start + 1 >= length)
+            return start;
+        char c = sql.charAt(start);
+        char next = sql.charAt(start + 1);
+        if (c == '-' && next == '-') {
+            int newLine = sql.indexOf('\n', start + 2);
+            return newLine < 0 ? length : newLine + 1;
+        }
+        if (c == '/' && next == '*') {
+            int close = sql.indexOf("*/", start + 2);
+            return close < 0 ? length : close + 2;
+        }
+        return start;
+    }
+
+    /**
+     * Doubled closing quotes are escaped quotes, except {@code ]} of names in brackets
+     * @param sql SQL text
+     * @param start position of the opening quote
+     * @param close the closing quote
+     * @return position after the closing quote or the length of the SQL if it isn't closed
+     */
+    public static int skipQuoted(String sql, int start, char close) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == close) {
+                if (close != ']' && i + 1 < sql.length() && sql.charAt(i + 1) == close) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+}
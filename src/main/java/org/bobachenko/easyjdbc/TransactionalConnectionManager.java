@@ -22,36 +22,48 @@ Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
 */
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.bobachenko.easyjdbc.datasource.StatementCache;
+import org.bobachenko.easyjdbc.datasource.StatementCacheStatistics;
 import org.bobachenko.easyjdbc.exception.EasySqlException;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Connection manager with support of transactions.
+ * Deferred updates are flushed before the connection is given to any operation and before commit.
  * @author Maxim Bobachenko
  */
 class TransactionalConnectionManager implements ConnectionManager {
 
-    private DataSource dataSource;
+    private final DataSource dataSource;
     private IsolationLevel isolationLevel = IsolationLevel.Default;
+    private final StatementCacheStatistics statementCacheStatistics;
+    private final DeferredWrites deferredWrites = new DeferredWrites();
     private Connection connection;
 
     TransactionalConnectionManager(DataSource dataSource) {
         this.dataSource = dataSource;
+        // connections of the pool of the library already cache statements
+        this.statementCacheStatistics = dataSource instanceof EasyPooledDataSource ?
+                ((EasyPooledDataSource) dataSource).getStatementCacheStatistics() : new StatementCacheStatistics();
     }
 
     TransactionalConnectionManager(DataSource dataSource, IsolationLevel isolationLevel) {
-        this.dataSource = dataSource;
+        this(dataSource);
         this.isolationLevel = isolationLevel;
     }
 
     @Override
     public Connection getConnection() throws SQLException {
         if (connection == null) {
-            connection = dataSource.getConnection();
+            connection = dataSource instanceof EasyPooledDataSource ? dataSource.getConnection() :
+                    StatementCache.wrap(dataSource.getConnection(), StatementCache.DEFAULT_CAPACITY,
+                            statementCacheStatistics);
             connection.setAutoCommit(false);
 
             if (isolationLevel != IsolationLevel.Default) {
@@ -64,22 +76,56 @@ class TransactionalConnectionManager implements ConnectionManager {
                 }
             }
         }
+
+        if (!deferredWrites.isEmpty())
+            flush();
         return connection;
     }
 
     @Override
-    public void closeConnection() throws SQLException {
+    public void closeConnection(Connection connection) throws SQLException {
+
+    }
+
+    @Override
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
+    }
 
+    CompletableFuture<Integer> defer(String sql, Object[] params) {
+        return deferredWrites.add(sql, params);
+    }
+
+    void flush() {
+        deferredWrites.flush(new EasyJdbcImpl(this));
     }
 
     void commit() throws SQLException {
-        connection.commit();
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            try {
+                rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+
+        if (connection != null)
+            connection.commit();
         close();
     }
 
     void rollback() throws SQLException {
-        connection.rollback();
-        close();
+        deferredWrites.cancel();
+        try {
+            if (connection != null)
+                connection.rollback();
+        } finally {
+            // the connection is released even if rollback fails, so a retry gets a new one
+            close();
+        }
     }
 
     //TODO make it good
@@ -0,0 +1,386 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.cache;
+
+import org.bobachenko.easyjdbc.ColumnarResult;
+import org.bobachenko.easyjdbc.EasyJdbc;
+import org.bobachenko.easyjdbc.NamedParameters;
+import org.bobachenko.easyjdbc.mapper.KeyMapper;
+import org.bobachenko.easyjdbc.mapper.ParameterMapper;
+import org.bobachenko.easyjdbc.mapper.ResultMapper;
+import org.bobachenko.easyjdbc.mapper.RowCallback;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of EasyJdbc which keeps results of queries in memory.
+ *
+ * Results are cached by SQL, parameters and the mapper or the type of the result.
+ * Mappers are compared by {@code equals}, which is identity for lambdas and most mapper classes,
+ * so a query is cached only if it's called with the same mapper object, e.g. a constant, a method reference
+ * to a static method or {@code BeanRowMapper.of}. A capturing lambda or a new mapper created for every call
+ * never hits the cache, and its results only push useful results out of it.
+ * Every result lives no longer than its time to live, and the least recently used results are removed
+ * when the cache is full. Modifying methods of this object invalidate results of queries which read
+ * the modified tables. If the modified table cannot be found in SQL, all results are invalidated.
+ * Changes which are made by other objects, transactions or applications are seen only after results expire.
+ *
+ * Lists and maps are returned unmodifiable, but objects created by mappers and arrays of
+ * {@link ColumnarResult} are shared between callers, so they must not be changed.
+ * Lazy queries {@code queryStream}, {@code forEachRow} and partitioned queries aren't cached.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class CachingEasyJdbc implements EasyJdbc {
+
+    private static final Object NULL = new Object();
+
+    private final EasyJdbc jdbc;
+    private final QueryCache cache;
+    private final long ttlNanos;
+
+    private CachingEasyJdbc(EasyJdbc jdbc, QueryCache cache, long ttlNanos) {
+        this.jdbc = jdbc;
+        this.cache = cache;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * @param jdbc object which executes queries
+     * @return settings of the cache
+     */
+    public static Builder builder(EasyJdbc jdbc) {
+        return new Builder(jdbc);
+    }
+
+    /**
+     * Returns a view which shares the cache with this object but keeps its results the given time.
+     * @param ttl time to live of results. Zero means they don't expire.
+     * @param unit unit of the time
+     */
+    public CachingEasyJdbc withTtl(long ttl, TimeUnit unit) {
+        if (ttl < 0)
+            throw new IllegalArgumentException("Time to live cannot be negative.");
+        return new CachingEasyJdbc(jdbc, cache, unit.toNanos(ttl));
+    }
+
+    /**
+     * Counters of the cache which are shared by all views
+     */
+    public QueryCacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * The number of cached results including expired ones which weren't removed yet
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Invalidates results of queries which read the table.
+     * It's needed when the table is modified by other objects.
+     * @param table name of the table
+     */
+    public void invalidate(String table) {
+        Set<String> tables = SqlTables.read("FROM " + table);
+        if (tables.isEmpty())
+            throw new IllegalArgumentException("Wrong name of the table: " + table);
+        cache.invalidate(tables);
+    }
+
+    /**
+     * Invalidates all results
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public <T> Optional<T> queryResult(String sql, ResultMapper<T> mapper, Object... params) {
+        return cached("queryResult", mapper, sql, params, () -> jdbc.queryResult(sql, mapper, params));
+    }
+
+    @Override
+    public <T> Optional<T> queryScalar(String sql, Class<T> typeOfReturnValue, Object... params) {
+        return cached("queryScalar", typeOfReturnValue, sql, params,
+                () -> jdbc.queryScalar(sql, typeOfReturnValue, params));
+    }
+
+    @Override
+    public OptionalLong queryLong(String sql, Object... params) {
+        return cached("queryLong", null, sql, params, () -> jdbc.queryLong(sql, params));
+    }
+
+    @Override
+    public OptionalInt queryInt(String sql, Object... params) {
+        return cached("queryInt", null, sql, params, () -> jdbc.queryInt(sql, params));
+    }
+
+    @Override
+    public OptionalDouble queryDouble(String sql, Object... params) {
+        return cached("queryDouble", null, sql, params, () -> jdbc.queryDouble(sql, params));
+    }
+
+    @Override
+    public long[] queryLongArray(String sql, Object... params) {
+        return cached("queryLongArray", null, sql, params, () -> jdbc.queryLongArray(sql, params)).clone();
+    }
+
+    @Override
+    public <T> Optional<T> queryObject(String sql, RowMapper<T> mapper, Object... params) {
+        return cached("queryObject", mapper, sql, params, () -> jdbc.queryObject(sql, mapper, params));
+    }
+
+    @Override
+    public List<Map<String, Object>> queryAssoc(String sql, Object... params) {
+        return cached("queryAssoc", null, sql, params, () -> {
+            List<Map<String, Object>> rows = jdbc.queryAssoc(sql, params);
+            List<Map<String, Object>> result = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows)
+                result.add(Collections.unmodifiableMap(row));
+            return Collections.unmodifiableList(result);
+        });
+    }
+
+    @Override
+    public <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) {
+        return cached("queryList", mapper, sql, params,
+                () -> Collections.unmodifiableList(jdbc.queryList(sql, mapper, params)));
+    }
+
+    @Override
+    public ColumnarResult queryColumns(String sql, Object... params) {
+        return cached("queryColumns", null, sql, params, () -> jdbc.queryColumns(sql, params));
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryStream(sql, mapper, params);
+    }
+
+    @Override
+    public <T> Stream<T> queryStream(String sql, int fetchSize, RowMapper<T> mapper, Object... params) {
+        return jdbc.queryStream(sql, fetchSize, mapper, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, RowCallback callback, Object... params) {
+        return jdbc.forEachRow(sql, callback, params);
+    }
+
+    @Override
+    public int forEachRow(String sql, int fetchSize, RowCallback callback, Object... params) {
+        return jdbc.forEachRow(sql, fetchSize, callback, params);
+    }
+
+    @Override
+    public <T> List<T> queryPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                        RowMapper<T> mapper, Object... params) {
+        return jdbc.queryPartitioned(sql, keyColumn, min, max, partitions, mapper, params);
+    }
+
+    @Override
+    public int forEachRowPartitioned(String sql, String keyColumn, long min, long max, int partitions,
+                                     RowCallback callback, Object... params) {
+        return jdbc.forEachRowPartitioned(sql, keyColumn, min, max, partitions, callback, params);
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, Class<T> typeOfNotCompositePrimaryKey, Object... params) {
+        return modify(sql, () -> jdbc.create(sql, typeOfNotCompositePrimaryKey, params));
+    }
+
+    @Override
+    public <T> Optional<T> create(String sql, KeyMapper<T> compositeKeyMapper, Object... params) {
+        return modify(sql, () -> jdbc.create(sql, compositeKeyMapper, params));
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, Class<T> typeOfNotCompositePrimaryKey) {
+        return modify(sql, () -> jdbc.createBatch(sql, rows, typeOfNotCompositePrimaryKey));
+    }
+
+    @Override
+    public <T> List<T> createBatch(String sql, Iterable<Object[]> rows, KeyMapper<T> compositeKeyMapper) {
+        return modify(sql, () -> jdbc.createBatch(sql, rows, compositeKeyMapper));
+    }
+
+    @Override
+    public int update(String sql, Object... params) {
+        return modify(sql, () -> jdbc.update(sql, params));
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows) {
+        return modify(sql, () -> jdbc.updateBatch(sql, rows));
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> rows, int batchSize) {
+        return modify(sql, () -> jdbc.updateBatch(sql, rows, batchSize));
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows) {
+        return modify(sql, () -> jdbc.insertBulk(sql, rows));
+    }
+
+    @Override
+    public int insertBulk(String sql, Iterable<Object[]> rows, int maxParameters) {
+        return modify(sql, () -> jdbc.insertBulk(sql, rows, maxParameters));
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper) {
+        return modify(sql, () -> jdbc.updateBatch(sql, items, mapper));
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Collection<T> items, ParameterMapper<T> mapper, int batchSize) {
+        return modify(sql, () -> jdbc.updateBatch(sql, items, mapper, batchSize));
+    }
+
+    /**
+     * Returns the cached result or executes the query and caches its result
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String method, Object mapper, String sql, Object[] params, Supplier<T> query) {
+        if (!isCacheable(params))
+            return query.get();
+
+        QueryKey key = new QueryKey(method, mapper, sql, keyParams(sql, params));
+        QueryCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            Object value = entry.getValue();
+            return value == NULL ? null : (T) value;
+        }
+
+        // versions are taken before the query to not cache a result which is modified concurrently
+        QueryCache.Snapshot snapshot = cache.snapshot(SqlTables.read(sql));
+        T result = query.get();
+        cache.put(key.detach(), result == null ? NULL : result, snapshot, ttlNanos);
+        return result;
+    }
+
+    /**
+     * Parameters of the key. Named parameters are replaced by values which the SQL uses,
+     * so a changed bean or unused values don't affect the key.
+     */
+    private static Object[] keyParams(String sql, Object[] params) {
+        if (params == null || params.length != 1 || !(params[0] instanceof NamedParameters))
+            return params;
+        return new Object[]{((NamedParameters) params[0]).resolve(sql)};
+    }
+
+    /**
+     * Executes the modifying operation and invalidates results of modified tables even if it fails
+     */
+    private <T> T modify(String sql, Supplier<T> operation) {
+        try {
+            return operation.get();
+        } finally {
+            Set<String> tables = SqlTables.written(sql);
+            if (tables == null)
+                cache.invalidateAll();
+            else
+                cache.invalidate(tables);
+        }
+    }
+
+    /**
+     * Parameters which are read once or compared by identity are not used as keys
+     */
+    private static boolean isCacheable(Object[] params) {
+        if (params == null)
+            return true;
+        for (Object param : params) {
+            if (param instanceof InputStream || param instanceof Reader || param instanceof Blob
+                    || param instanceof Clob || param instanceof java.sql.Array
+                    || param instanceof org.bobachenko.easyjdbc.Array)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Settings of the cache
+     */
+    public static final class Builder {
+        private final EasyJdbc jdbc;
+        private int maximumSize = 10_000;
+        private long ttlMillis = 60_000;
+
+        private Builder(EasyJdbc jdbc) {
+            if (jdbc == null)
+                throw new IllegalArgumentException("The jdbc parameter cannot be null.");
+            this.jdbc = jdbc;
+        }
+
+        /**
+         * @param maximumSize the maximum number of cached results. Default is 10000.
+         */
+        public Builder maximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param millis default time to live of results. Zero means they don't expire. Default is 1 minute.
+         */
+        public Builder ttl(long millis) {
+            this.ttlMillis = millis;
+            return this;
+        }
+
+        /**
+         * @return a new cache
+         */
+        public CachingEasyJdbc build() {
+            if (maximumSize <= 0)
+                throw new IllegalArgumentException("The maximum size of the cache must be positive.");
+            if (ttlMillis < 0)
+                throw new IllegalArgumentException("Time to live cannot be negative.");
+            return new CachingEasyJdbc(jdbc, new QueryCache(maximumSize), TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        }
+    }
+}
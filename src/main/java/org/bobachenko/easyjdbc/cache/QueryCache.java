@@ -0,0 +1,217 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU store of query results which is split to segments to reduce contention.
+ *
+ * Invalidation doesn't scan entries. Every table has a version which is incremented when the table is modified.
+ * An entry remembers versions of its tables which were read before the query was executed,
+ * and it's stale if any of them has changed. Stale and expired entries are removed when they are requested
+ * or when they are evicted as the least recently used.
+ *
+ * @author Maxim Bobachenko
+ */
+final class QueryCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final QueryCacheStatistics statistics = new QueryCacheStatistics();
+
+    QueryCache(int maximumSize) {
+        int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+        int segmentSize = (maximumSize + count - 1) / count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment(segmentSize);
+    }
+
+    QueryCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the entry or null if there isn't a valid entry
+     */
+    Entry get(QueryKey key) {
+        Segment segment = segmentOf(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && !isValid(entry)) {
+                segment.remove(key);
+                statistics.expiration();
+                entry = null;
+            }
+        }
+
+        if (entry == null)
+            statistics.miss();
+        else
+            statistics.hit();
+        return entry;
+    }
+
+    /**
+     * Versions of the tables before the query is executed
+     */
+    Snapshot snapshot(Collection<String> tables) {
+        long global = globalVersion.get();
+        AtomicLong[] counters = new AtomicLong[tables.size()];
+        long[] values = new long[counters.length];
+        int i = 0;
+        for (String table : tables) {
+            counters[i] = versions.computeIfAbsent(table, t -> new AtomicLong());
+            values[i] = counters[i].get();
+            i++;
+        }
+        return new Snapshot(global, counters, values);
+    }
+
+    void put(QueryKey key, Object value, Snapshot snapshot, long ttlNanos) {
+        long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        Entry entry = new Entry(value, expiresAt, snapshot);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * Invalidates results which depend on the tables
+     */
+    void invalidate(Collection<String> tables) {
+        for (String table : tables) {
+            AtomicLong version = versions.get(table);
+            if (version != null)
+                version.incrementAndGet();
+        }
+        statistics.invalidation();
+    }
+
+    /**
+     * Invalidates all results
+     */
+    void invalidateAll() {
+        globalVersion.incrementAndGet();
+        statistics.invalidation();
+    }
+
+    /**
+     * The number of entries including expired ones which weren't removed yet
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private boolean isValid(Entry entry) {
+        if (entry.expiresAt != 0 && entry.expiresAt - System.nanoTime() <= 0)
+            return false;
+        Snapshot snapshot = entry.snapshot;
+        if (snapshot.global != globalVersion.get())
+            return false;
+        for (int i = 0; i < snapshot.counters.length; i++) {
+            if (snapshot.counters[i].get() != snapshot.values[i])
+                return false;
+        }
+        return true;
+    }
+
+    private Segment segmentOf(QueryKey key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Cached result
+     */
+    static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+        private final Snapshot snapshot;
+
+        private Entry(Object value, long expiresAt, Snapshot snapshot) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.snapshot = snapshot;
+        }
+
+        Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Versions of tables which a result depends on
+     */
+    static final class Snapshot {
+        private final long global;
+        private final AtomicLong[] counters;
+        private final long[] values;
+
+        private Snapshot(long global, AtomicLong[] counters, long[] values) {
+            this.global = global;
+            this.counters = counters;
+            this.values = values;
+        }
+    }
+
+    /**
+     * One part of the store with its own lock and LRU order
+     */
+    private final class Segment extends LinkedHashMap<QueryKey, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QueryKey, Entry> eldest) {
+            if (size() > maximumSize) {
+                statistics.eviction();
+                return true;
+            }
+            return false;
+        }
+    }
+}
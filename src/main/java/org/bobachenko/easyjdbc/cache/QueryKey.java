@@ -0,0 +1,98 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.cache;
+
+import org.bobachenko.easyjdbc.NamedParameters;
+
+import java.util.Arrays;
+
+/**
+ * Key of a cached result: the method, the mapper or the type of the result, SQL and parameters.
+ * Parameters are compared by {@link Arrays#deepEquals(Object[], Object[])},
+ * mappers are compared by {@code equals} which is identity for lambdas.
+ *
+ * @author Maxim Bobachenko
+ */
+final class QueryKey {
+    private final String method;
+    private final Object mapper;
+    private final String sql;
+    private final Object[] params;
+    private final int hash;
+
+    QueryKey(String method, Object mapper, String sql, Object[] params) {
+        this.method = method;
+        this.mapper = mapper;
+        this.sql = sql;
+        this.params = params;
+
+        int result = method.hashCode();
+        result = 31 * result + (mapper == null ? 0 : mapper.hashCode());
+        result = 31 * result + (sql == null ? 0 : sql.hashCode());
+        this.hash = 31 * result + Arrays.deepHashCode(params);
+    }
+
+    /**
+     * Copy of the key which doesn't depend on the array of parameters of the caller
+     * and on named parameters which the caller can change by {@code with}
+     */
+    QueryKey detach() {
+        return params == null ? this : new QueryKey(method, mapper, sql, copyOf(params));
+    }
+
+    private static Object[] copyOf(Object[] params) {
+        Object[] copy = params.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] instanceof NamedParameters)
+                copy[i] = ((NamedParameters) copy[i]).copy();
+            else if (copy[i] instanceof Object[])
+                copy[i] = copyOf((Object[]) copy[i]);
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof QueryKey))
+            return false;
+        QueryKey other = (QueryKey) o;
+        return hash == other.hash
+                && method.equals(other.method)
+                && (mapper == null ? other.mapper == null : mapper.equals(other.mapper))
+                && (sql == null ? other.sql == null : sql.equals(other.sql))
+                && Arrays.deepEquals(params, other.params);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return method + ": " + sql + " " + Arrays.deepToString(params);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.cache;
+
+import org.bobachenko.easyjdbc.SqlScanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds names of tables in SQL statements.
+ * It isn't a full SQL parser, it's a scanner which looks for tables after FROM, JOIN, INTO, UPDATE and TABLE.
+ * Names are upper-cased if they aren't quoted and schemas are dropped,
+ * so {@code app.person}, {@code PERSON} and {@code "PERSON"} are the same table.
+ *
+ * @author Maxim Bobachenko
+ */
+final class SqlTables {
+
+    private static final Set<String> NOT_ALIASES = new HashSet<>(Arrays.asList(
+            "WHERE", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "ON", "USING",
+            "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "UNION", "INTERSECT", "EXCEPT", "MINUS",
+            "FOR", "WINDOW", "SET", "VALUES", "SELECT", "DEFAULT", "RETURNING"));
+
+    private SqlTables() {
+    }
+
+    /**
+     * Tables which are read by the query
+     * @return names of tables, it's empty if the query doesn't read tables
+     */
+    static Set<String> read(String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("FROM") || token.equals("JOIN")) {
+                i = readTableList(tokens, i + 1, tables, token.equals("FROM"));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Tables which are modified by the statement
+     * @return names of tables or null if the statement isn't recognized
+     */
+    static Set<String> written(String sql) {
+        List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty())
+            return null;
+
+        int position;
+        switch (tokens.get(0)) {
+            case "INSERT":
+            case "MERGE":
+            case "REPLACE":
+            case "UPSERT":
+                position = expect(tokens, 1, "INTO");
+                break;
+            case "DELETE":
+                position = expect(tokens, 1, "FROM");
+                break;
+            case "TRUNCATE":
+                position = expect(tokens, 1, "TABLE");
+                break;
+            case "UPDATE":
+                position = 1;
+                break;
+            default:
+                return null;
+        }
+
+        Set<String> tables = new LinkedHashSet<>();
+        if (readTable(tokens, position, tables, false) == position)
+            return null;
+        return Collections.unmodifiableSet(tables);
+    }
+
+    /**
+     * Skips the keyword if it's the next token
+     */
+    private static int expect(List<String> tokens, int position, String keyword) {
+        return position < tokens.size() && tokens.get(position).equals(keyword) ? position + 1 : position;
+    }
+
+    /**
+     * Reads tables separated by commas with their aliases
+     * @return position of the last read token
+     */
+    private static int readTableList(List<String> tokens, int position, Set<String> tables, boolean commas) {
+        while (true) {
+            int next = readTable(tokens, position, tables, true);
+            if (next == position)
+                return position - 1;
+            position = next;
+
+            // alias
+            if (position < tokens.size() && tokens.get(position).equals("AS"))
+                position++;
+            if (position < tokens.size() && isIdentifier(tokens.get(position))
+                    && !NOT_ALIASES.contains(tokens.get(position)))
+                position++;
+
+            if (!commas || position >= tokens.size() || !tokens.get(position).equals(","))
+                return position - 1;
+            position++;
+        }
+    }
+
+    /**
+     * Reads a qualified name of a table
+     * @param functions true if a name followed by a parenthesis is a table function rather than a table
+     * @return position after the name or the same position if there isn't a table
+     */
+    private static int readTable(List<String> tokens, int position, Set<String> tables, boolean functions) {
+        if (position >= tokens.size() || !isIdentifier(tokens.get(position)))
+            return position;
+
+        String name = tokens.get(position++);
+        while (position + 1 < tokens.size() && tokens.get(position).equals(".")
+                && isIdentifier(tokens.get(position + 1))) {
+            name = tokens.get(position + 1);
+            position += 2;
+        }
+
+        // table function like SYSTEM_RANGE(1, 10)
+        if (functions && position < tokens.size() && tokens.get(position).equals("("))
+            return position;
+
+        tables.add(name.charAt(0) == '"' ? name.substring(1) : name);
+        return position;
+    }
+
+    private static boolean isIdentifier(String token) {
+        char c = token.charAt(0);
+        return Character.isLetter(c) || c == '_' || c == '"';
+    }
+
+    /**
+     * Splits SQL to words and punctuation. Literals and comments are skipped.
+     * Unquoted words are upper-cased, quoted words keep the leading quote to distinguish them from keywords.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int comment = SqlScanner.skipComment(sql, i);
+            if (comment > i) {
+                i = comment;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                i = SqlScanner.skipQuoted(sql, i, '\'');
+            } else if (c == '"' || c == '`' || c == '[') {
+                char close = c == '[' ? ']' : c;
+                int end = SqlScanner.skipQuoted(sql, i, close);
+                tokens.add("\"" + sql.substring(i + 1, Math.max(i + 1, end - 1)));
+                i = end;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i))
+                        || sql.charAt(i) == '_' || sql.charAt(i) == '$'))
+                    i++;
+                tokens.add(sql.substring(start, i).toUpperCase(Locale.ROOT));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
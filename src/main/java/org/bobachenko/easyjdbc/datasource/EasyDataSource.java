@@ -37,6 +37,7 @@ import java.util.logging.Logger;
  *
  * Don't use it for real application except if your application is very simple.
  * It doesn't have connection pool and other necessary features.
+ * Use {@link EasyPooledDataSource} if you need a simple connection pool.
  *
  * @author Maxim Bobachenko
  */
@@ -0,0 +1,574 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.datasource;
+
+import javax.sql.CommonDataSource;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@code DataSource} implementation with a connection pool.
+ *
+ * Physical connections are opened by another {@code DataSource} (e.g. {@link EasyDataSource})
+ * and are reused by many operations. A connection returns to the pool when user closes it.
+ * Idle connections are kept in a lock-free deque, the number of borrowed connections
+ * is limited by {@code maxSize}.
+ *
+ * Call {@link #close()} to close all physical connections when the pool isn't needed anymore.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class EasyPooledDataSource implements DataSource, AutoCloseable {
+
+    /**
+     * A connection that was used less than this time ago isn't validated on borrow.
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private static final Logger logger = Logger.getLogger(EasyPooledDataSource.class.getName());
+
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+    private final StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
+
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed;
+
+    /**
+     * Factory method to create a pool with default settings
+     * @param driverClass the fully qualified name of the jdbc driver class.
+     * @param url a database url of the form <code> jdbc:<em>subprotocol</em>:<em>subname</em></code>
+     * @param username the user's name
+     * @param password the user's password
+     * @return instance of EasyPooledDataSource
+     */
+    public static EasyPooledDataSource of(String driverClass, String url, String username, String password) {
+        return builder(driverClass, url, username, password).build();
+    }
+
+    /**
+     * Creates a builder of the pool which opens physical connections by {@link EasyDataSource}
+     * @param driverClass the fully qualified name of the jdbc driver class.
+     * @param url a database url of the form <code> jdbc:<em>subprotocol</em>:<em>subname</em></code>
+     * @param username the user's name
+     * @param password the user's password
+     * @return builder of EasyPooledDataSource
+     */
+    public static Builder builder(String driverClass, String url, String username, String password) {
+        return new Builder(EasyDataSource.of(driverClass, url, username, password));
+    }
+
+    /**
+     * Creates a builder of the pool which opens physical connections by a given data source
+     * @param dataSource a not pooled data source
+     * @return builder of EasyPooledDataSource
+     */
+    public static Builder builder(DataSource dataSource) {
+        return new Builder(dataSource);
+    }
+
+    private EasyPooledDataSource(Builder builder) {
+        this.dataSource = builder.dataSource;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.acquireTimeoutMillis = builder.acquireTimeoutMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxLifetimeMillis = builder.maxLifetimeMillis;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "easy-jdbc-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::houseKeeping,
+                0, builder.housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool. It waits for a free connection if all of them are in use.
+     *
+     * @return Connection. Close it to return to the pool.
+     * @throws SQLException if a database access error occurs or acquire timeout is expired
+     * @see javax.sql.DataSource#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("The pool is already closed.");
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException(String.format("Connection isn't available, " +
+                        "request timed out after %d ms.", acquireTimeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during waiting for a connection.", e);
+        }
+
+        try {
+            return borrow().newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a new physical connection, it isn't a pooled one.
+     *
+     * @param username the user's name
+     * @param password the user's password
+     * @return a connection to the data source
+     * @throws SQLException if a database access error happens.
+     * @see javax.sql.DataSource#getConnection(String, String)
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return dataSource.getConnection(username, password);
+    }
+
+    /**
+     * Closes all idle connections and stops the pool.
+     * Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null)
+            destroy(pooled);
+    }
+
+    /**
+     * @return the maximum number of connections.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of physical connections, both idle and borrowed.
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return number of idle connections in the pool.
+     */
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return number of connections that are borrowed now.
+     */
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * @return statistics of caches of prepared statements of all connections
+     */
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (isAlive(pooled))
+                return pooled;
+            destroy(pooled);
+        }
+        return open();
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = StatementCache.wrap(dataSource.getConnection(), statementCacheSize,
+                statementCacheStatistics);
+        totalConnections.incrementAndGet();
+        try {
+            return new PooledConnection(connection);
+        } catch (SQLException e) {
+            totalConnections.decrementAndGet();
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    private boolean isAlive(PooledConnection pooled) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (isExpired(pooled, now))
+            return false;
+        return now - pooled.lastUsedAt < VALIDATION_BYPASS_MILLIS
+                || pooled.connection.isValid(validationTimeoutSeconds);
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (!closed && !pooled.broken && !isExpired(pooled, System.currentTimeMillis())
+                    && totalConnections.get() <= maxSize && pooled.reset()) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idleConnections.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        closeQuietly(pooled.connection);
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Close connection error", e);
+        }
+    }
+
+    /**
+     * Evicts idle and expired connections and keeps the minimum number of connections.
+     * Connections from the tail of the deque are the least recently used ones.
+     */
+    private void houseKeeping() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idleConnections) {
+            boolean idleTooLong = idleTimeoutMillis > 0 && now - pooled.lastUsedAt >= idleTimeoutMillis
+                    && totalConnections.get() > minSize;
+            if ((idleTooLong || isExpired(pooled, now)) && idleConnections.removeFirstOccurrence(pooled))
+                destroy(pooled);
+        }
+
+        try {
+            while (!closed && totalConnections.get() < minSize) {
+                PooledConnection pooled = open();
+                idleConnections.offerLast(pooled);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "Cannot fill the pool up to the minimum size", e);
+        }
+    }
+
+    /**
+     * Physical connection in the pool.
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private final boolean defaultAutoCommit;
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+
+        private volatile long lastUsedAt;
+        private volatile boolean dirty;
+        private volatile boolean broken;
+
+        PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+            this.defaultAutoCommit = connection.getAutoCommit();
+            this.defaultReadOnly = connection.isReadOnly();
+            this.defaultIsolation = connection.getTransactionIsolation();
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(EasyPooledDataSource.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandle(this));
+        }
+
+        /**
+         * Rolls back an unfinished transaction and restores the state of the connection
+         * @return false if the connection cannot be reused
+         */
+        boolean reset() {
+            try {
+                if (dirty || !defaultAutoCommit) {
+                    if (!connection.getAutoCommit())
+                        connection.rollback();
+                    if (connection.getAutoCommit() != defaultAutoCommit)
+                        connection.setAutoCommit(defaultAutoCommit);
+                    if (connection.isReadOnly() != defaultReadOnly)
+                        connection.setReadOnly(defaultReadOnly);
+                    if (connection.getTransactionIsolation() != defaultIsolation)
+                        connection.setTransactionIsolation(defaultIsolation);
+                    dirty = false;
+                }
+                connection.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Reset connection error", e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Logical connection which is given to user.
+     * It returns the physical connection to the pool instead of closing.
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.connection;
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                    pooled.dirty = true;
+                    break;
+                default:
+                    break;
+            }
+
+            if (closed)
+                throw new SQLException("The connection is already closed.");
+
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08 is a connection exception
+                if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+                        && ((SQLException) cause).getSQLState().startsWith("08"))
+                    pooled.broken = true;
+                throw cause;
+            }
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException(String.format("The pool isn't a wrapper for %s.", iface.getName()));
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * @see CommonDataSource#getLogWriter()
+     */
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    /**
+     * @see CommonDataSource#setLogWriter
+     */
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    /**
+     * @see CommonDataSource#setLoginTimeout(int)
+     */
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    /**
+     * @see CommonDataSource#getLoginTimeout()
+     */
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    /**
+     * This method isn't implemented and always throws SQLFeatureNotSupportedException
+     */
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /**
+     * Settings of the pool
+     */
+    public static final class Builder {
+        private final DataSource dataSource;
+        private int minSize = 0;
+        private int maxSize = 10;
+        private long acquireTimeoutMillis = 30_000;
+        private long idleTimeoutMillis = 600_000;
+        private long maxLifetimeMillis = 1_800_000;
+        private long housekeepingPeriodMillis = 30_000;
+        private int validationTimeoutSeconds = 5;
+        private int statementCacheSize = StatementCache.DEFAULT_CAPACITY;
+
+        private Builder(DataSource dataSource) {
+            if (dataSource == null)
+                throw new IllegalArgumentException("The dataSource parameter cannot be null.");
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * @param minSize the number of connections which are kept open even if they are idle. Default is 0.
+         */
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param maxSize the maximum number of connections. Default is 10.
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param millis how long {@code getConnection()} waits for a free connection. Default is 30 seconds.
+         */
+        public Builder acquireTimeout(long millis) {
+            this.acquireTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param millis idle connections above {@code minSize} are closed after this time. Zero means never.
+         *               Default is 10 minutes.
+         */
+        public Builder idleTimeout(long millis) {
+            this.idleTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param millis connections are closed after this time since they were opened. Zero means never.
+         *               Default is 30 minutes.
+         */
+        public Builder maxLifetime(long millis) {
+            this.maxLifetimeMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param seconds timeout of validation on borrow. Default is 5 seconds.
+         */
+        public Builder validationTimeout(int seconds) {
+            this.validationTimeoutSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * @param millis how often idle connections are evicted. Default is 30 seconds.
+         */
+        public Builder housekeepingPeriod(long millis) {
+            this.housekeepingPeriodMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param size the number of prepared statements cached for every connection. Zero disables the cache.
+         *             Default is {@link StatementCache#DEFAULT_CAPACITY}.
+         */
+        public Builder statementCacheSize(int size) {
+            this.statementCacheSize = size;
+            return this;
+        }
+
+        /**
+         * @return a new pool
+         */
+        public EasyPooledDataSource build() {
+            if (maxSize <= 0 || minSize < 0 || minSize > maxSize)
+                throw new IllegalArgumentException(String.format("Wrong size of the pool: min %d, max %d.",
+                        minSize, maxSize));
+            if (housekeepingPeriodMillis <= 0)
+                throw new IllegalArgumentException("The housekeeping period must be positive.");
+            return new EasyPooledDataSource(this);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LRU cache of prepared statements for one connection.
+ *
+ * The cache wraps a connection. Statements prepared by {@code prepareStatement(String)} and
+ * {@code prepareStatement(String, int)} are kept open when user closes them and they are given back
+ * for the same sql and generated keys mode. The least recently used statement is closed when the cache is full.
+ * All cached statements are closed with the connection.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class StatementCache {
+
+    /**
+     * Default number of statements cached for one connection
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final Logger logger = Logger.getLogger(StatementCache.class.getName());
+
+    private StatementCache() {
+    }
+
+    /**
+     * Wraps the connection to cache its prepared statements
+     * @param connection a physical connection
+     * @param capacity the maximum number of cached statements
+     * @param statistics counters to collect statistics of the cache
+     * @return the connection with the cache of statements or the connection itself if capacity is zero
+     */
+    public static Connection wrap(Connection connection, int capacity, StatementCacheStatistics statistics) {
+        if (capacity <= 0)
+            return connection;
+        return (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new CachingConnection(connection, capacity, statistics));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Key of the cache
+     */
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return autoGeneratedKeys == key.autoGeneratedKeys && sql.equals(key.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    /**
+     * Connection which takes statements from the cache
+     */
+    private static final class CachingConnection implements InvocationHandler {
+        private final Connection connection;
+        private final StatementCacheStatistics statistics;
+        private final LinkedHashMap<Key, CachedStatement> statements;
+
+        CachingConnection(Connection connection, int capacity, StatementCacheStatistics statistics) {
+            this.connection = connection;
+            this.statistics = statistics;
+            this.statements = new LinkedHashMap<Key, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                    if (size() <= capacity)
+                        return false;
+                    statistics.eviction();
+                    eldest.getValue().evict();
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.equals("prepareStatement") && args.length == 1)
+                return prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+            if (name.equals("prepareStatement") && args.length == 2 && method.getParameterTypes()[1] == int.class)
+                return prepare((String) args[0], (Integer) args[1]);
+            if (name.equals("close")) {
+                closeStatements();
+                connection.close();
+                return null;
+            }
+            if (name.equals("equals"))
+                return proxy == args[0];
+            if (name.equals("hashCode"))
+                return System.identityHashCode(proxy);
+
+            return StatementCache.invoke(connection, method, args);
+        }
+
+        private synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            Key key = new Key(sql, autoGeneratedKeys);
+            CachedStatement cached = statements.get(key);
+
+            if (cached != null && !cached.inUse) {
+                statistics.hit();
+                cached.inUse = true;
+                return cached.proxy;
+            }
+
+            statistics.miss();
+            PreparedStatement statement = connection.prepareStatement(sql, autoGeneratedKeys);
+
+            // the same query is already being executed by this connection, e.g. by a lazy stream
+            if (cached != null)
+                return statement;
+
+            cached = new CachedStatement(this, statement);
+            cached.inUse = true;
+            statements.put(key, cached);
+            return cached.proxy;
+        }
+
+        private synchronized void closeStatements() {
+            for (Iterator<CachedStatement> iterator = statements.values().iterator(); iterator.hasNext(); ) {
+                iterator.next().evict();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Statement which is returned to the cache instead of closing
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        private final CachingConnection owner;
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+        private final int defaultMaxFieldSize;
+
+        private boolean inUse;
+        private boolean evicted;
+        private boolean batched;
+        private boolean fetchSizeChanged;
+        private boolean maxRowsChanged;
+        private boolean queryTimeoutChanged;
+        private boolean maxFieldSizeChanged;
+
+        CachedStatement(CachingConnection owner, PreparedStatement statement) throws SQLException {
+            this.owner = owner;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+            this.defaultMaxRows = statement.getMaxRows();
+            this.defaultQueryTimeout = statement.getQueryTimeout();
+            this.defaultMaxFieldSize = statement.getMaxFieldSize();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "addBatch":
+                    batched = true;
+                    break;
+                case "setFetchSize":
+                    fetchSizeChanged = true;
+                    break;
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                    maxRowsChanged = true;
+                    break;
+                case "setQueryTimeout":
+                    queryTimeoutChanged = true;
+                    break;
+                case "setMaxFieldSize":
+                    maxFieldSizeChanged = true;
+                    break;
+                default:
+                    break;
+            }
+
+            if (!inUse)
+                throw new SQLException("The statement is already closed.");
+
+            Object result = StatementCache.invoke(statement, method, args);
+            if (result instanceof ResultSet) {
+                dropClosedResultSets();
+                resultSets.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        /**
+         * Forgets result sets which are already closed, e.g. generated keys of every row
+         * of a long insert, so they don't stay reachable until the statement is released
+         */
+        private void dropClosedResultSets() throws SQLException {
+            for (Iterator<ResultSet> iterator = resultSets.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().isClosed())
+                    iterator.remove();
+            }
+        }
+
+        /**
+         * Closes result sets and clears the statement for the next user
+         */
+        private void release() throws SQLException {
+            synchronized (owner) {
+                if (!inUse)
+                    return;
+                inUse = false;
+
+                if (evicted) {
+                    statement.close();
+                    return;
+                }
+
+                try {
+                    for (ResultSet resultSet : resultSets)
+                        resultSet.close();
+                    resultSets.clear();
+
+                    statement.clearParameters();
+                    if (batched) {
+                        statement.clearBatch();
+                        batched = false;
+                    }
+                    // max rows is reset first, because some drivers don't allow fetch size above it
+                    if (maxRowsChanged) {
+                        statement.setMaxRows(defaultMaxRows);
+                        maxRowsChanged = false;
+                    }
+                    if (fetchSizeChanged) {
+                        statement.setFetchSize(defaultFetchSize);
+                        fetchSizeChanged = false;
+                    }
+                    if (queryTimeoutChanged) {
+                        statement.setQueryTimeout(defaultQueryTimeout);
+                        queryTimeoutChanged = false;
+                    }
+                    if (maxFieldSizeChanged) {
+                        statement.setMaxFieldSize(defaultMaxFieldSize);
+                        maxFieldSizeChanged = false;
+                    }
+                } catch (SQLException e) {
+                    // the statement cannot be reused
+                    evicted = true;
+                    owner.statements.values().remove(this);
+                    statement.close();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Removes the statement from the cache. It's closed immediately if it isn't used.
+         */
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Close statement error", e);
+                }
+            }
+        }
+    }
+}
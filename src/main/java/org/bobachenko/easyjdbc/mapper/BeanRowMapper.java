@@ -0,0 +1,210 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+ 
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+ 
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+ 
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+*/
+
+package org.bobachenko.easyjdbc.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code RowMapper} which creates a java bean by its default constructor and sets
+ * its properties by setters. A column is mapped to a property with the same name,
+ * case and underscores are ignored, e.g. column {@code LAST_LOGIN} is mapped to {@code setLastLogin}.
+ *
+ * Columns of a result set are matched with setters only once. The plan of mapping is cached
+ * for every set of columns, so next queries with the same columns reuse it.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class BeanRowMapper<T> implements RowMapper<T> {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<BeanRowMapper<?>> mappers = new ClassValue<BeanRowMapper<?>>() {
+        @Override
+        protected BeanRowMapper<?> computeValue(Class<?> type) {
+            return new BeanRowMapper<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Map<String, Property> properties = new HashMap<>();
+    private final ColumnPlans<Binding[]> plans = new ColumnPlans<>(this::createPlan);
+
+    /**
+     * Provides the mapper of the bean class. Mappers are cached, so the same object is returned for the class.
+     * @param type class of the bean. It must have a constructor without parameters
+     * @param <T> type of the bean
+     * @return the mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> of(Class<T> type) {
+        if (type == null)
+            throw new IllegalArgumentException("Type cannot be null.");
+        return (BeanRowMapper<T>) mappers.get(type);
+    }
+
+    private BeanRowMapper(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Constructor<T> defaultConstructor = type.getDeclaredConstructor();
+            defaultConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(defaultConstructor).asType(CONSTRUCTOR_TYPE);
+
+            Map<String, List<Method>> setters = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getParameterCount() != 1
+                        || !method.getName().startsWith("set") || method.getName().length() == 3)
+                    continue;
+                setters.computeIfAbsent(ColumnReaders.normalize(method.getName().substring(3)),
+                        key -> new ArrayList<>()).add(method);
+            }
+
+            for (Map.Entry<String, List<Method>> entry : setters.entrySet()) {
+                Method method = selectSetter(entry.getKey(), entry.getValue());
+                method.setAccessible(true);
+                MethodHandle setter = lookup.unreflect(method).asType(SETTER_TYPE);
+                Class<?> propertyType = method.getParameterTypes()[0];
+                properties.put(entry.getKey(),
+                        new Property(setter, ColumnReaders.of(propertyType), propertyType.isPrimitive()));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("Class %s must have a constructor without " +
+                    "parameters and accessible setters.", type.getName()), e);
+        }
+    }
+
+    /**
+     * Chooses one of overloaded setters of the property. It's the setter whose parameter
+     * has the type of the getter.
+     * @throws IllegalArgumentException if there isn't such setter
+     */
+    private Method selectSetter(String property, List<Method> candidates) {
+        if (candidates.size() == 1)
+            return candidates.get(0);
+
+        Class<?> getterType = null;
+        for (Method method : type.getMethods()) {
+            String name = method.getName();
+            int prefix = name.startsWith("get") ? 3 : name.startsWith("is") ? 2 : 0;
+            if (prefix != 0 && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()
+                    && method.getParameterCount() == 0 && method.getReturnType() != void.class
+                    && ColumnReaders.normalize(name.substring(prefix)).equals(property)) {
+                getterType = method.getReturnType();
+                break;
+            }
+        }
+
+        Method selected = null;
+        for (Method candidate : candidates) {
+            if (candidate.getParameterTypes()[0] == getterType) {
+                if (selected != null) {
+                    selected = null;
+                    break;
+                }
+                selected = candidate;
+            }
+        }
+        if (selected == null)
+            throw new IllegalArgumentException(String.format("Class %s has ambiguous setters of property %s.",
+                    type.getName(), property));
+        return selected;
+    }
+
+    /**
+     * Creates the bean and sets values of the current row.
+     * @param resultSet the ResultSet to map
+     * @param rowNumber the number of the row
+     * @return the bean
+     * @throws SQLException if it's happens during getting column values.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T map(ResultSet resultSet, int rowNumber) throws SQLException {
+        Binding[] bindings = plans.of(resultSet);
+        try {
+            Object bean = constructor.invokeExact();
+            for (Binding binding : bindings) {
+                Object value = binding.property.reader.read(resultSet, binding.column);
+                if (value != null || !binding.property.primitive)
+                    binding.property.setter.invokeExact(bean, value);
+            }
+            return (T) bean;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(String.format("Cannot map a row to %s.", type.getName()), e);
+        }
+    }
+
+    private Binding[] createPlan(String[] labels) {
+        List<Binding> bindings = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            Property property = properties.get(ColumnReaders.normalize(labels[i]));
+            if (property != null)
+                bindings.add(new Binding(i + 1, property));
+        }
+        return bindings.toArray(new Binding[0]);
+    }
+
+    /**
+     * Setter of a property and reader of its column
+     */
+    private static final class Property {
+        private final MethodHandle setter;
+        private final ColumnReader reader;
+        private final boolean primitive;
+
+        Property(MethodHandle setter, ColumnReader reader, boolean primitive) {
+            this.setter = setter;
+            this.reader = reader;
+            this.primitive = primitive;
+        }
+    }
+
+    /**
+     * Column index which is bound to a property
+     */
+    private static final class Binding {
+        private final int column;
+        private final Property property;
+
+        Binding(int column, Property property) {
+            this.column = column;
+            this.property = property;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+ 
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+ 
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+ 
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+*/
+
+package org.bobachenko.easyjdbc.mapper;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Plans of mapping of a mapper which are created once for every set of columns.
+ *
+ * The plan of the last result set is remembered per thread, so rows of one result set don't read
+ * its metadata again and threads which map different result sets don't replace plans of each other.
+ * The result set is weakly referenced, so its statement and connection aren't kept after the query.
+ *
+ * @author Maxim Bobachenko
+ */
+final class ColumnPlans<P> {
+
+    private final Map<String, P> plans = new ConcurrentHashMap<>();
+    private final ThreadLocal<Last<P>> last = new ThreadLocal<>();
+    private final Function<String[], P> factory;
+
+    /**
+     * @param factory creates the plan for labels of columns
+     */
+    ColumnPlans(Function<String[], P> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Finds the plan for the result set. It's searched by column labels only for a new result set.
+     */
+    P of(ResultSet resultSet) throws SQLException {
+        Last<P> current = last.get();
+        if (current != null && current.resultSet.get() == resultSet)
+            return current.plan;
+
+        String[] labels = ColumnReaders.labels(resultSet);
+        P plan = plans.computeIfAbsent(String.join("\u0000", labels), key -> factory.apply(labels));
+        last.set(new Last<>(resultSet, plan));
+        return plan;
+    }
+
+    /**
+     * The last result set of a thread and its plan
+     */
+    private static final class Last<P> {
+        private final WeakReference<ResultSet> resultSet;
+        private final P plan;
+
+        Last(ResultSet resultSet, P plan) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.plan = plan;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+ 
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+ 
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+ 
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+*/
+
+package org.bobachenko.easyjdbc.mapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Readers of columns for java types of properties.
+ *
+ * @author Maxim Bobachenko
+ */
+final class ColumnReaders {
+
+    private static final Map<Class<?>, ColumnReader> readers = new HashMap<>();
+
+    static {
+        ColumnReader intReader = (rs, i) -> {
+            int value = rs.getInt(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader longReader = (rs, i) -> {
+            long value = rs.getLong(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader shortReader = (rs, i) -> {
+            short value = rs.getShort(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader byteReader = (rs, i) -> {
+            byte value = rs.getByte(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader doubleReader = (rs, i) -> {
+            double value = rs.getDouble(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader floatReader = (rs, i) -> {
+            float value = rs.getFloat(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader booleanReader = (rs, i) -> {
+            boolean value = rs.getBoolean(i);
+            return rs.wasNull() ? null : value;
+        };
+
+        readers.put(int.class, intReader);
+        readers.put(Integer.class, intReader);
+        readers.put(long.class, longReader);
+        readers.put(Long.class, longReader);
+        readers.put(short.class, shortReader);
+        readers.put(Short.class, shortReader);
+        readers.put(byte.class, byteReader);
+        readers.put(Byte.class, byteReader);
+        readers.put(double.class, doubleReader);
+        readers.put(Double.class, doubleReader);
+        readers.put(float.class, floatReader);
+        readers.put(Float.class, floatReader);
+        readers.put(boolean.class, booleanReader);
+        readers.put(Boolean.class, booleanReader);
+
+        readers.put(String.class, (rs, i) -> rs.getString(i));
+        readers.put(BigDecimal.class, (rs, i) -> rs.getBigDecimal(i));
+        readers.put(byte[].class, (rs, i) -> rs.getBytes(i));
+        readers.put(java.util.Date.class, (rs, i) -> rs.getTimestamp(i));
+        readers.put(Timestamp.class, (rs, i) -> rs.getTimestamp(i));
+        readers.put(Date.class, (rs, i) -> rs.getDate(i));
+        readers.put(Time.class, (rs, i) -> rs.getTime(i));
+        readers.put(Instant.class, (rs, i) -> {
+            Timestamp value = rs.getTimestamp(i);
+            return value == null ? null : value.toInstant();
+        });
+        readers.put(LocalDate.class, (rs, i) -> {
+            Date value = rs.getDate(i);
+            return value == null ? null : value.toLocalDate();
+        });
+        readers.put(LocalTime.class, (rs, i) -> {
+            Time value = rs.getTime(i);
+            return value == null ? null : value.toLocalTime();
+        });
+        readers.put(LocalDateTime.class, (rs, i) -> {
+            Timestamp value = rs.getTimestamp(i);
+            return value == null ? null : value.toLocalDateTime();
+        });
+    }
+
+    private ColumnReaders() {
+    }
+
+    /**
+     * Labels of columns of the result set
+     */
+    static String[] labels(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = metaData.getColumnLabel(i + 1);
+        return labels;
+    }
+
+    /**
+     * Name of a column or a property without case and underscores
+     */
+    static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    /**
+     * Provides the reader for the java type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static ColumnReader of(Class<?> type) {
+        ColumnReader reader = readers.get(type);
+        if (reader != null)
+            return reader;
+
+        if (type.isEnum()) {
+            return (rs, i) -> {
+                String value = rs.getString(i);
+                return value == null ? null : Enum.valueOf((Class<? extends Enum>) type, value);
+            };
+        }
+
+        // If it's another type, we have to rely on JDBC
+        return (rs, i) -> {
+            Object value = rs.getObject(i);
+            return value == null || type.isInstance(value) ? value : rs.getObject(i, type);
+        };
+    }
+}
@@ -0,0 +1,240 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+ 
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+ 
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+ 
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+*/
+
+package org.bobachenko.easyjdbc.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code RowMapper} which creates an immutable object by its constructor.
+ *
+ * Columns are matched with parameters of the constructor by name, case and underscores are ignored.
+ * Names are taken from components of a record (Java 16+) or from parameters of the constructor
+ * if the class is compiled with {@code -parameters} option. Otherwise columns are passed
+ * to the constructor in the order of the query.
+ *
+ * If the class has many constructors, the one with the most parameters is used.
+ * Columns of a result set are matched with parameters only once, the constructor call with typed getters
+ * of {@code ResultSet} is compiled to a {@code MethodHandle} and cached for every set of columns.
+ * Primitive parameters are read by {@code getInt}, {@code getLong} etc. without boxing.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class ConstructorRowMapper<T> implements RowMapper<T> {
+
+    private static final MethodType ROW_TYPE = MethodType.methodType(Object.class, ResultSet.class);
+    private static final MethodHandle READ;
+    private static final Map<Class<?>, MethodHandle> primitiveGetters = new HashMap<>();
+
+    private static final Method IS_RECORD = findMethod(Class.class, "isRecord");
+    private static final Method GET_RECORD_COMPONENTS = findMethod(Class.class, "getRecordComponents");
+
+    private static final ClassValue<ConstructorRowMapper<?>> mappers = new ClassValue<ConstructorRowMapper<?>>() {
+        @Override
+        protected ConstructorRowMapper<?> computeValue(Class<?> type) {
+            return new ConstructorRowMapper<>(type);
+        }
+    };
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            READ = lookup.findVirtual(ColumnReader.class, "read",
+                    MethodType.methodType(Object.class, ResultSet.class, int.class));
+
+            String[][] getters = {{"int", "getInt"}, {"long", "getLong"}, {"double", "getDouble"},
+                    {"float", "getFloat"}, {"short", "getShort"}, {"byte", "getByte"}, {"boolean", "getBoolean"}};
+            Class<?>[] types = {int.class, long.class, double.class, float.class, short.class, byte.class, boolean.class};
+            for (int i = 0; i < types.length; i++) {
+                primitiveGetters.put(types[i], lookup.findVirtual(ResultSet.class, getters[i][1],
+                        MethodType.methodType(types[i], int.class)));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Class<?>[] parameterTypes;
+    // null if names of parameters aren't available
+    private final String[] parameterNames;
+    private final ColumnPlans<MethodHandle> factories = new ColumnPlans<>(this::createFactory);
+
+    /**
+     * Provides the mapper of the class. Mappers are cached, so the same object is returned for the class.
+     * @param type class of objects
+     * @param <T> type of objects
+     * @return the mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConstructorRowMapper<T> of(Class<T> type) {
+        if (type == null)
+            throw new IllegalArgumentException("Type cannot be null.");
+        return (ConstructorRowMapper<T>) mappers.get(type);
+    }
+
+    private ConstructorRowMapper(Class<T> type) {
+        this.type = type;
+        try {
+            Constructor<?> selected;
+            if (isRecord(type)) {
+                Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+                parameterTypes = new Class<?>[components.length];
+                parameterNames = new String[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = (Class<?>) components[i].getClass().getMethod("getType").invoke(components[i]);
+                    parameterNames[i] = (String) components[i].getClass().getMethod("getName").invoke(components[i]);
+                }
+                selected = type.getDeclaredConstructor(parameterTypes);
+            } else {
+                selected = widestConstructor(type);
+                parameterTypes = selected.getParameterTypes();
+                parameterNames = namesOf(selected);
+            }
+
+            selected.setAccessible(true);
+            constructor = MethodHandles.lookup().unreflectConstructor(selected);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(String.format("Cannot use a constructor of %s.", type.getName()), e);
+        }
+    }
+
+    /**
+     * Creates the object from the current row.
+     * @param resultSet the ResultSet to map
+     * @param rowNumber the number of the row
+     * @return the object
+     * @throws SQLException if it's happens during getting column values.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T map(ResultSet resultSet, int rowNumber) throws SQLException {
+        MethodHandle factory = factories.of(resultSet);
+        try {
+            return (T) factory.invokeExact(resultSet);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(String.format("Cannot map a row to %s.", type.getName()), e);
+        }
+    }
+
+    /**
+     * Compiles the call of the constructor with values of matched columns
+     */
+    private MethodHandle createFactory(String[] labels) {
+        int[] columns = matchColumns(labels);
+        if (columns.length == 0)
+            return MethodHandles.dropArguments(constructor, 0, ResultSet.class).asType(ROW_TYPE);
+
+        MethodHandle[] getters = new MethodHandle[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            MethodHandle getter = primitiveGetters.get(parameterType);
+            if (getter == null) {
+                getter = READ.bindTo(ColumnReaders.of(parameterType))
+                        .asType(MethodType.methodType(parameterType, ResultSet.class, int.class));
+            }
+            getters[i] = MethodHandles.insertArguments(getter, 1, columns[i]);
+        }
+
+        // all arguments of the constructor are taken from the same result set
+        MethodHandle factory = MethodHandles.filterArguments(constructor, 0, getters);
+        return MethodHandles.permuteArguments(factory,
+                MethodType.methodType(type, ResultSet.class), new int[columns.length]).asType(ROW_TYPE);
+    }
+
+    private int[] matchColumns(String[] labels) {
+        int[] columns = new int[parameterTypes.length];
+
+        if (parameterNames == null) {
+            if (labels.length < columns.length)
+                throw new IllegalStateException(String.format("Constructor of %s has %d parameters, " +
+                        "but the query has %d columns.", type.getName(), columns.length, labels.length));
+            for (int i = 0; i < columns.length; i++)
+                columns[i] = i + 1;
+            return columns;
+        }
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = labels.length - 1; i >= 0; i--)
+            indexes.put(ColumnReaders.normalize(labels[i]), i + 1);
+
+        for (int i = 0; i < columns.length; i++) {
+            Integer column = indexes.get(ColumnReaders.normalize(parameterNames[i]));
+            if (column == null)
+                throw new IllegalStateException(String.format("There isn't a column for parameter %s of %s.",
+                        parameterNames[i], type.getName()));
+            columns[i] = column;
+        }
+        return columns;
+    }
+
+    private static Constructor<?> widestConstructor(Class<?> type) {
+        Constructor<?> widest = null;
+        for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+            if (!candidate.isSynthetic()
+                    && (widest == null || candidate.getParameterCount() > widest.getParameterCount()))
+                widest = candidate;
+        }
+        if (widest == null)
+            throw new IllegalArgumentException(String.format("Class %s doesn't have constructors.", type.getName()));
+        return widest;
+    }
+
+    private static String[] namesOf(Constructor<?> constructor) {
+        Parameter[] parameters = constructor.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (!parameters[i].isNamePresent())
+                return null;
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    private static boolean isRecord(Class<?> type) throws ReflectiveOperationException {
+        return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+    }
+
+    /**
+     * Finds a method of newer Java versions, e.g. for records
+     */
+    private static Method findMethod(Class<?> owner, String name) {
+        try {
+            return owner.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+ 
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+ 
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+ 
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+*/
+
+package org.bobachenko.easyjdbc.mapper;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * {@code ParameterBinder} is an interface used by {@code EasyJdbc} for setting
+ * a parameter value of a certain java type to a statement.
+ *
+ * Register binders of your own types in {@code ParameterBinders}.
+ *
+ * @author Maxim Bobachenko
+ */
+@FunctionalInterface
+public interface ParameterBinder<T> {
+    /**
+     * Implement this method to set the value by a typed setter of the statement.
+     *
+     * @param statement the statement to set the parameter
+     * @param index the number of the parameter, the first is 1
+     * @param value the value of the parameter. It's never null.
+     * @throws SQLException if it's happens during setting the value.
+     * Don't catch this exception, because it'll be caught by {@code EasyJdbc}
+     */
+    void bind(PreparedStatement statement, int index, T value) throws SQLException;
+}
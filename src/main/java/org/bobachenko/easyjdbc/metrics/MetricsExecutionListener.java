@@ -0,0 +1,176 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.metrics;
+
+import org.bobachenko.easyjdbc.ExecutionListener;
+import org.bobachenko.easyjdbc.ExecutionTrace;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Listener which collects metrics of operations by SQL fingerprints and logs slow operations.
+ *
+ * Operations are grouped by fingerprints of their SQL, so queries which differ only by inlined values
+ * are counted together. Every group has a histogram of latencies and sums of durations of phases.
+ * The number of groups is limited, operations of new fingerprints above the limit are counted
+ * in the group {@link #OTHER}.
+ *
+ * Operations which take more than the threshold are logged with the level WARNING with durations of phases.
+ * All counters are lock-free.
+ *
+ * @author Maxim Bobachenko
+ */
+public final class MetricsExecutionListener implements ExecutionListener {
+
+    /**
+     * Fingerprint of the group of operations above the limit
+     */
+    public static final String OTHER = "<other>";
+
+    /**
+     * Fingerprints are cached by SQL, the full cache is cleared, so SQL with inlined values doesn't grow it
+     */
+    private static final int MAX_CACHED_FINGERPRINTS = 4096;
+
+    private static final Logger logger = Logger.getLogger(MetricsExecutionListener.class.getName());
+
+    private final long slowQueryNanos;
+    private final int maxQueries;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, QueryMetrics> metrics = new ConcurrentHashMap<>();
+
+    private MetricsExecutionListener(Builder builder) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(builder.slowQueryMillis);
+        this.maxQueries = builder.maxQueries;
+    }
+
+    /**
+     * Factory method to create a listener with default settings
+     */
+    public static MetricsExecutionListener of() {
+        return builder().build();
+    }
+
+    /**
+     * @return settings of the listener
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void onComplete(ExecutionTrace trace) {
+        String fingerprint = fingerprintOf(trace.getSql());
+        QueryMetrics queryMetrics = metrics.get(fingerprint);
+        if (queryMetrics == null) {
+            if (metrics.size() >= maxQueries)
+                fingerprint = OTHER;
+            queryMetrics = metrics.computeIfAbsent(fingerprint, QueryMetrics::new);
+        }
+        queryMetrics.record(trace);
+
+        if (slowQueryNanos > 0 && trace.getTotalNanos() >= slowQueryNanos && logger.isLoggable(Level.WARNING))
+            logger.log(Level.WARNING, "Slow query " + trace);
+    }
+
+    /**
+     * @return metrics of all groups of operations
+     */
+    public Collection<QueryMetrics> getMetrics() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    /**
+     * @param sql SQL of operations
+     * @return metrics of operations with the same fingerprint as the SQL or null if there weren't such operations
+     */
+    public QueryMetrics getMetrics(String sql) {
+        return metrics.get(fingerprintOf(sql));
+    }
+
+    /**
+     * Removes all metrics
+     */
+    public void reset() {
+        metrics.clear();
+    }
+
+    private String fingerprintOf(String sql) {
+        if (sql == null)
+            return "";
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = SqlFingerprint.of(sql);
+            if (fingerprints.size() >= MAX_CACHED_FINGERPRINTS)
+                fingerprints.clear();
+            fingerprints.putIfAbsent(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Settings of the listener
+     */
+    public static final class Builder {
+        private long slowQueryMillis = 1000;
+        private int maxQueries = 1000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param millis operations which take this time or more are logged. Zero disables the log.
+         *               Default is 1 second.
+         */
+        public Builder slowQueryThreshold(long millis) {
+            this.slowQueryMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param maxQueries the maximum number of groups of operations. Default is 1000.
+         */
+        public Builder maxQueries(int maxQueries) {
+            this.maxQueries = maxQueries;
+            return this;
+        }
+
+        /**
+         * @return a new listener
+         */
+        public MetricsExecutionListener build() {
+            if (slowQueryMillis < 0)
+                throw new IllegalArgumentException("The threshold of slow queries cannot be negative.");
+            if (maxQueries <= 0)
+                throw new IllegalArgumentException("The maximum number of queries must be positive.");
+            return new MetricsExecutionListener(this);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.metrics;
+
+import org.bobachenko.easyjdbc.ExecutionPhase;
+import org.bobachenko.easyjdbc.ExecutionTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of operations with the same SQL fingerprint
+ *
+ * @author Maxim Bobachenko
+ */
+public final class QueryMetrics {
+
+    private static final ExecutionPhase[] PHASES = ExecutionPhase.values();
+
+    private final String fingerprint;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+
+    QueryMetrics(String fingerprint) {
+        this.fingerprint = fingerprint;
+        for (int i = 0; i < phaseNanos.length; i++)
+            phaseNanos[i] = new LongAdder();
+    }
+
+    void record(ExecutionTrace trace) {
+        latency.record(trace.getTotalNanos());
+        for (ExecutionPhase phase : PHASES)
+            phaseNanos[phase.ordinal()].add(trace.getNanos(phase));
+        if (trace.getError() != null)
+            errors.increment();
+    }
+
+    /**
+     * SQL where literals are replaced by {@code ?} and whitespaces are collapsed
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the number of operations
+     */
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return the number of failed operations
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * @return histogram of total durations of operations
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the sum of durations of the phase of all operations in nanoseconds
+     */
+    public long getTotalNanos(ExecutionPhase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryMetrics{count=%d, errors=%d, latency=%s, sql=%s}",
+                getCount(), getErrorCount(), latency, fingerprint);
+    }
+}
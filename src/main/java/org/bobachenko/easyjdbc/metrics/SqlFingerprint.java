@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.metrics;
+
+import org.bobachenko.easyjdbc.SqlScanner;
+
+import java.util.Locale;
+
+/**
+ * Makes fingerprints of SQL: literals are replaced by {@code ?}, lists of parameters are collapsed,
+ * whitespaces and comments are removed, so queries with inlined values have the same fingerprint.
+ *
+ * @author Maxim Bobachenko
+ */
+final class SqlFingerprint {
+
+    private SqlFingerprint() {
+    }
+
+    static String of(String sql) {
+        if (sql == null)
+            return "";
+
+        StringBuilder result = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        boolean space = false;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = result.length() > 0;
+                i++;
+                continue;
+            }
+            int comment = SqlScanner.skipComment(sql, i);
+            if (comment > i) {
+                i = comment;
+                space = result.length() > 0;
+                continue;
+            }
+
+            if (space) {
+                result.append(' ');
+                space = false;
+            }
+
+            if (c == '\'') {
+                i = SqlScanner.skipQuoted(sql, i, '\'');
+                append(result, '?');
+            } else if (c == '?') {
+                i++;
+                append(result, '?');
+            } else if (Character.isDigit(c) && !isIdentifierPart(result)) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.'))
+                    i++;
+                append(result, '?');
+            } else if (c == '"' || c == '`') {
+                int start = i;
+                i = SqlScanner.skipQuoted(sql, i, c);
+                result.append(sql, start, i);
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                        || sql.charAt(i) == '$'))
+                    i++;
+                result.append(sql.substring(start, i).toUpperCase(Locale.ROOT));
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Appends a placeholder and collapses lists like {@code (?, ?, ?)} to {@code (?)}
+     */
+    private static void append(StringBuilder result, char placeholder) {
+        int length = result.length();
+        if (length >= 3 && result.charAt(length - 1) == ' ' && result.charAt(length - 2) == ','
+                && result.charAt(length - 3) == '?') {
+            result.setLength(length - 2);
+            return;
+        }
+        if (length >= 2 && result.charAt(length - 1) == ',' && result.charAt(length - 2) == '?') {
+            result.setLength(length - 1);
+            return;
+        }
+        result.append(placeholder);
+    }
+
+    private static boolean isIdentifierPart(StringBuilder result) {
+        if (result.length() == 0)
+            return false;
+        char last = result.charAt(result.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
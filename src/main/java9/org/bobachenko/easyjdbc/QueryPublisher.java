@@ -0,0 +1,134 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Publisher of rows of a query with backpressure.
+ * Every subscriber executes the query by its first request and reads the cursor only while it has demand,
+ * so a slow subscriber doesn't force the whole result into memory. The fetch size follows the requested
+ * number of rows up to {@code maxFetchSize}. The cursor and the connection are released when the rows are over,
+ * on error or when the subscription is cancelled, while the subscription waits for requests they are kept open.
+ *
+ * By default rows are read and delivered in the thread which calls {@code request},
+ * use {@link #subscribeOn(Executor)} to read them by another executor.
+ *
+ * This class is available on Java 9 and later.
+ * @author Maxim Bobachenko
+ */
+public final class QueryPublisher<T> implements Flow.Publisher<T> {
+
+    private final EasyJdbcImpl jdbc;
+    private final String sql;
+    private final RowMapper<T> mapper;
+    private final Object[] params;
+    private final Executor executor;
+    private final int maxFetchSize;
+
+    private QueryPublisher(EasyJdbcImpl jdbc, String sql, RowMapper<T> mapper, Object[] params,
+                           Executor executor, int maxFetchSize) {
+        this.jdbc = jdbc;
+        this.sql = sql;
+        this.mapper = mapper;
+        this.params = params;
+        this.executor = executor;
+        this.maxFetchSize = maxFetchSize;
+    }
+
+    /**
+     * Creates a publisher of rows of a query
+     * @param jdbc object which executes the query
+     * @param sql a query to execute
+     * @param mapper class or lambda to map a result of query. It's called for every rows in ResultSet
+     * @param params parameters for the query with correspondent types, if it's needed
+     */
+    public static <T> QueryPublisher<T> of(EasyJdbcImpl jdbc, String sql, RowMapper<T> mapper, Object... params) {
+        if (jdbc == null)
+            throw new IllegalArgumentException("The jdbc parameter cannot be null.");
+        if (mapper == null)
+            throw new IllegalArgumentException("RowMapper cannot be null.");
+        return new QueryPublisher<>(jdbc, sql, mapper, params, Runnable::run, EasyJdbcImpl.DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param executor executor which reads and delivers rows
+     * @return a publisher of the same query which uses the executor
+     */
+    public QueryPublisher<T> subscribeOn(Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("Executor cannot be null.");
+        return new QueryPublisher<>(jdbc, sql, mapper, params, executor, maxFetchSize);
+    }
+
+    /**
+     * @param maxFetchSize the maximum number of rows which are fetched from the database at once
+     * @return a publisher of the same query with the limit
+     */
+    public QueryPublisher<T> maxFetchSize(int maxFetchSize) {
+        if (maxFetchSize <= 0)
+            throw new IllegalArgumentException("Fetch size must be positive.");
+        return new QueryPublisher<>(jdbc, sql, mapper, params, executor, maxFetchSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null.");
+
+        RowSubscription<T> subscription = new RowSubscription<>(
+                fetchSize -> jdbc.openCursor(sql, fetchSize, mapper, params),
+                new RowSubscription.Sink<T>() {
+                    @Override
+                    public void onNext(T item) {
+                        subscriber.onNext(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        subscriber.onError(error);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        subscriber.onComplete();
+                    }
+                }, executor, maxFetchSize);
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        });
+    }
+}
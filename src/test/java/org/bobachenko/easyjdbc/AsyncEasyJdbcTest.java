@@ -0,0 +1,129 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class AsyncEasyJdbcTest extends EasyJdbcTest {
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+    }
+
+    @Test
+    void query_thenCompleteFutures() throws Exception {
+        try (AsyncEasyJdbcImpl async = AsyncEasyJdbc.builder(dataSource).threads(2).build()) {
+            CompletableFuture<Long> count = async.queryLong("SELECT COUNT(*) FROM PERSON")
+                    .thenApply(value -> value.getAsLong());
+            CompletableFuture<List<Person>> persons = async.queryList("SELECT * FROM PERSON WHERE id < ?",
+                    Person::map, 4);
+
+            Assertions.assertEquals(10L, count.get(5, TimeUnit.SECONDS).longValue());
+            Assertions.assertEquals(3, persons.get(5, TimeUnit.SECONDS).size());
+            Assertions.assertEquals(1, async.update("DELETE FROM PERSON WHERE id = ?", 1)
+                    .get(5, TimeUnit.SECONDS).intValue());
+        }
+    }
+
+    @Test
+    void queryPartitioned_thenCompleteFutures() throws Exception {
+        try (AsyncEasyJdbcImpl async = AsyncEasyJdbc.builder(dataSource).build()) {
+            CompletableFuture<List<Long>> ids = async.queryPartitioned("SELECT id FROM PERSON", "id", 1, 10, 3,
+                    (rs, n) -> rs.getLong(1));
+            CompletableFuture<Integer> processed = async.forEachRowPartitioned("SELECT id FROM PERSON", "id", 1, 10, 3,
+                    (rs, n) -> true);
+
+            Assertions.assertEquals(10, ids.get(5, TimeUnit.SECONDS).size());
+            Assertions.assertEquals(10, processed.get(5, TimeUnit.SECONDS).intValue());
+        }
+    }
+
+    @Test
+    void insertBulk_thenCompleteFuture() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            rows.add(new Object[]{"bulk " + i, 100.0});
+
+        try (AsyncEasyJdbcImpl async = AsyncEasyJdbc.builder(dataSource).build()) {
+            Assertions.assertEquals(5, async.insertBulk("INSERT INTO PERSON (name, salary) VALUES (?, ?)", rows, 4)
+                    .get(5, TimeUnit.SECONDS).intValue());
+        }
+        Assertions.assertEquals(5L, jdbc.queryLong("SELECT COUNT(*) FROM PERSON WHERE name LIKE 'bulk%'").getAsLong());
+    }
+
+    @Test
+    void query_thenCompleteExceptionallyOnError() throws Exception {
+        try (AsyncEasyJdbcImpl async = AsyncEasyJdbc.builder(dataSource).build()) {
+            CompletableFuture<Integer> future = async.update("UPDATE NO_SUCH_TABLE SET x = 1");
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                    () -> future.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof RuntimeException);
+        }
+    }
+
+    @Test
+    void execute_thenRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (AsyncEasyJdbcImpl async = AsyncEasyJdbc.builder(dataSource).threads(1).queueCapacity(1).build()) {
+            CompletableFuture<Integer> blocking = async.execute(jdbc -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            });
+            started.await(5, TimeUnit.SECONDS);
+
+            CompletableFuture<Integer> waiting = async.execute(jdbc -> 2);
+            CompletableFuture<Integer> rejected = async.execute(jdbc -> 3);
+
+            Assertions.assertEquals(1, async.getActiveCount());
+            Assertions.assertEquals(1, async.getQueueDepth());
+            Assertions.assertEquals(1, async.getRejectedCount());
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, rejected::get);
+            Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+
+            release.countDown();
+            Assertions.assertEquals(1, blocking.get(5, TimeUnit.SECONDS).intValue());
+            Assertions.assertEquals(2, waiting.get(5, TimeUnit.SECONDS).intValue());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.BeanRowMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class BeanRowMapperTest extends EasyJdbcTest {
+
+    /*
+                simple bean
+     */
+    public static class PersonBean {
+        private int id;
+        private String name;
+        private LocalDate birthday;
+        private Double salary;
+        private Date lastLogin;
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setBirthday(LocalDate birthday) {
+            this.birthday = birthday;
+        }
+
+        public void setSalary(Double salary) {
+            this.salary = salary;
+        }
+
+        public void setLastLogin(Date lastLogin) {
+            this.lastLogin = lastLogin;
+        }
+    }
+
+    /*
+                bean with a generic setter, it has a bridge method with Object parameter
+     */
+    public abstract static class Holder<V> {
+        public abstract void setBirthday(V birthday);
+    }
+
+    public static class GenericBean extends Holder<LocalDate> {
+        private LocalDate birthday;
+
+        @Override
+        public void setBirthday(LocalDate birthday) {
+            this.birthday = birthday;
+        }
+    }
+
+    /*
+                beans with overloaded setters
+     */
+    public static class OverloadedBean {
+        private Double salary;
+
+        public Double getSalary() {
+            return salary;
+        }
+
+        public void setSalary(Double salary) {
+            this.salary = salary;
+        }
+
+        public void setSalary(String salary) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static class AmbiguousBean {
+        public void setSalary(Double salary) {
+        }
+
+        public void setSalary(String salary) {
+        }
+    }
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+    }
+
+    @Test
+    void queryList_thenMapAllColumns() {
+        List<PersonBean> list = jdbc.queryList("SELECT * FROM PERSON WHERE id < ? ORDER BY id",
+                BeanRowMapper.of(PersonBean.class), 4);
+
+        Assertions.assertEquals(3, list.size());
+        PersonBean first = list.get(0);
+        Assertions.assertEquals(1, first.id);
+        Assertions.assertEquals("Person 1", first.name);
+        Assertions.assertNotNull(first.birthday);
+        Assertions.assertEquals(Double.valueOf(999.0), first.salary);
+        Assertions.assertNotNull(first.lastLogin);
+    }
+
+    @Test
+    void queryObject_thenMapLabelsWithUnderscores() {
+        jdbc.update("UPDATE PERSON SET salary = NULL WHERE id = ?", 2);
+
+        Optional<PersonBean> person = jdbc.queryObject("SELECT id, name AS NAME, salary, " +
+                "lastLogin AS last_login, 'unknown' AS unknown_column FROM PERSON WHERE id = ?",
+                BeanRowMapper.of(PersonBean.class), 2);
+
+        Assertions.assertTrue(person.isPresent());
+        Assertions.assertEquals("Person 2", person.get().name);
+        Assertions.assertNull(person.get().salary);
+        Assertions.assertNotNull(person.get().lastLogin);
+        Assertions.assertNull(person.get().birthday);
+    }
+
+    @Test
+    void of_thenReturnCachedMapper() {
+        Assertions.assertSame(BeanRowMapper.of(PersonBean.class), BeanRowMapper.of(PersonBean.class));
+    }
+
+    @Test
+    void queryObject_whenGenericSetter_thenSkipBridge() {
+        Optional<GenericBean> bean = jdbc.queryObject("SELECT birthday FROM PERSON WHERE id = ?",
+                BeanRowMapper.of(GenericBean.class), 1);
+        Assertions.assertNotNull(bean.get().birthday);
+    }
+
+    @Test
+    void queryObject_whenOverloadedSetters_thenUseTypeOfGetter() {
+        Optional<OverloadedBean> bean = jdbc.queryObject("SELECT salary FROM PERSON WHERE id = ?",
+                BeanRowMapper.of(OverloadedBean.class), 1);
+        Assertions.assertNotNull(bean.get().getSalary());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BeanRowMapper.of(AmbiguousBean.class));
+    }
+
+    @Test
+    void map_whenThreadsMapDifferentResultSets_thenReadColumnsOncePerResultSet() throws Exception {
+        BeanRowMapper<PersonBean> mapper = BeanRowMapper.of(PersonBean.class);
+        ExecutorService[] threads = {Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor()};
+        int[] metaDataCalls = new int[2];
+
+        try (Connection connection = dataSource.getConnection();
+             Statement first = connection.createStatement();
+             Statement second = connection.createStatement()) {
+            ResultSet[] resultSets = {
+                    countMetaData(first.executeQuery("SELECT * FROM PERSON ORDER BY id"), metaDataCalls, 0),
+                    countMetaData(second.executeQuery("SELECT * FROM PERSON ORDER BY id"), metaDataCalls, 1)};
+
+            // rows of both result sets are mapped in turn by their own threads
+            for (int row = 1; row <= 3; row++) {
+                for (int i = 0; i < 2; i++) {
+                    ResultSet resultSet = resultSets[i];
+                    int number = row;
+                    Assertions.assertNotNull(threads[i].submit(() -> {
+                        Assertions.assertTrue(resultSet.next());
+                        return mapper.map(resultSet, number);
+                    }).get().name);
+                }
+            }
+        } finally {
+            for (ExecutorService thread : threads)
+                thread.shutdown();
+        }
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, metaDataCalls);
+    }
+
+    private static ResultSet countMetaData(ResultSet resultSet, int[] calls, int index) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getMetaData"))
+                        calls[index]++;
+                    try {
+                        return method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
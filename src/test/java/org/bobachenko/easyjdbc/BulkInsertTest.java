@@ -0,0 +1,154 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+class BulkInsertTest extends EasyJdbcTest {
+
+    private static final String INSERT = "INSERT INTO BULK_ITEM (id, name, amount) VALUES (?, ?, ?)";
+
+    @BeforeAll
+    static void createTable() {
+        EasyJdbc.of(dataSource).update("CREATE TABLE BULK_ITEM(id INT PRIMARY KEY, name VARCHAR(32), amount INT)");
+    }
+
+    @AfterAll
+    static void dropTable() {
+        EasyJdbc.of(dataSource).update("DROP TABLE BULK_ITEM");
+    }
+
+    @BeforeEach
+    void clearTable() {
+        EasyJdbc.of(dataSource).update("DELETE FROM BULK_ITEM");
+    }
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++)
+            rows.add(new Object[]{id, "item" + id, id % 10});
+        return rows;
+    }
+
+    @Test
+    void insertBulk_thenInsertAllRowsByBlocks() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+
+        // 300 parameters allow blocks of 100 rows, the rest 37 is sent as 32 + 4 + 1
+        Assertions.assertEquals(2537, jdbc.insertBulk(INSERT, rows(2537), 300));
+
+        Assertions.assertEquals(OptionalLong.of(2537), jdbc.queryLong("SELECT COUNT(*) FROM BULK_ITEM"));
+        Assertions.assertEquals(OptionalLong.of(2537L * 2538 / 2), jdbc.queryLong("SELECT SUM(id) FROM BULK_ITEM"));
+        Assertions.assertEquals(Collections.singletonList("item2537"),
+                jdbc.queryList("SELECT name FROM BULK_ITEM WHERE id = ?", (rs, n) -> rs.getString(1), 2537));
+    }
+
+    @Test
+    void insertBulk_whenCollectionsOfManySizes_thenReuseShapesOfBlocks() {
+        EasyPooledDataSource pool = EasyPooledDataSource.builder(dataSource).maxSize(1).build();
+        EasyJdbc jdbc = EasyJdbc.of(pool);
+
+        int inserted = 0;
+        for (int size = 1; size <= 50; size++) {
+            List<Object[]> rows = rows(size);
+            for (Object[] row : rows)
+                row[0] = (Integer) row[0] + inserted;
+            inserted += jdbc.insertBulk(INSERT, rows, 300);
+        }
+
+        Assertions.assertEquals(1275, inserted);
+        // blocks of 1, 2, 4, 8, 16 and 32 rows
+        Assertions.assertEquals(6, pool.getStatementCacheStatistics().getMisses());
+        pool.close();
+    }
+
+    @Test
+    void insertBulk_thenTraceTemplate() {
+        Set<String> traced = new HashSet<>();
+        EasyJdbc jdbc = EasyJdbc.of(dataSource, new ExecutionListener() {
+            @Override
+            public void onPhase(ExecutionTrace trace, ExecutionPhase phase, long nanos) {
+                traced.add(trace.getSql());
+            }
+
+            @Override
+            public void onComplete(ExecutionTrace trace) {
+                traced.add(trace.getSql());
+            }
+        });
+
+        Assertions.assertEquals(7, jdbc.insertBulk(INSERT, rows(7)));
+        Assertions.assertEquals(Collections.singleton(INSERT), traced);
+    }
+
+    @Test
+    void insertBulk_whenWrongRow_thenThrow() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> jdbc.insertBulk(INSERT, Collections.singletonList(new Object[]{1, "one"})));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> jdbc.insertBulk(INSERT, rows(1), 2));
+        Assertions.assertEquals(OptionalLong.of(0), jdbc.queryLong("SELECT COUNT(*) FROM BULK_ITEM"));
+    }
+
+    @Test
+    void of_whenCacheIsFull_thenCacheNewTemplates() {
+        for (int i = 0; i <= 5000; i++)
+            BulkInsert.of("INSERT INTO t (a, b) VALUES (?, " + i + ")");
+
+        String sql = "INSERT INTO t (b, a) VALUES (?, ?)";
+        Assertions.assertSame(BulkInsert.of(sql), BulkInsert.of(sql));
+    }
+
+    @Test
+    void compile_thenRewriteOnlyValuesRow() {
+        BulkInsert bulk = BulkInsert.of("INSERT INTO t (a, b, c) values (?, lower(?), 'x?values') ON CONFLICT DO NOTHING;");
+
+        Assertions.assertEquals(2, bulk.getParameters());
+        Assertions.assertEquals("INSERT INTO t (a, b, c) values (?, lower(?), 'x?values'), " +
+                "(?, lower(?), 'x?values') ON CONFLICT DO NOTHING;", bulk.getSql(2));
+        Assertions.assertSame(bulk.getSql(4), bulk.getSql(4));
+
+        BulkInsert casts = BulkInsert.of("INSERT INTO t (a, b) VALUES (?::jsonb, ?::text)");
+        Assertions.assertEquals(2, casts.getParameters());
+        Assertions.assertEquals("INSERT INTO t (a, b) VALUES (?::jsonb, ?::text), (?::jsonb, ?::text)", casts.getSql(2));
+
+        for (String sql : Arrays.asList("INSERT INTO t (a) VALUES (?), (?)", "INSERT INTO t (a) SELECT ?",
+                "INSERT INTO t (a) VALUES (:a)", "UPDATE t SET a = ?"))
+            Assertions.assertThrows(IllegalArgumentException.class, () -> BulkInsert.compile(sql), sql);
+    }
+}
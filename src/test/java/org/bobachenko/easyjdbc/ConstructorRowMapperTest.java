@@ -0,0 +1,92 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.mapper.ConstructorRowMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+class ConstructorRowMapperTest extends EasyJdbcTest {
+
+    /*
+                immutable model
+     */
+    static final class PersonView {
+        final int id;
+        final String name;
+        final double salary;
+        final LocalDate birthday;
+
+        PersonView(int id, String name, double salary, LocalDate birthday) {
+            this.id = id;
+            this.name = name;
+            this.salary = salary;
+            this.birthday = birthday;
+        }
+
+        PersonView(int id) {
+            this(id, null, 0, null);
+        }
+    }
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+    }
+
+    @Test
+    void queryList_thenCallWidestConstructor() {
+        List<PersonView> list = jdbc.queryList("SELECT id, name, salary, birthday FROM PERSON WHERE id < ? ORDER BY id",
+                ConstructorRowMapper.of(PersonView.class), 4);
+
+        Assertions.assertEquals(3, list.size());
+        Assertions.assertEquals(3, list.get(2).id);
+        Assertions.assertEquals("Person 3", list.get(2).name);
+        Assertions.assertEquals(999.0 * 3, list.get(2).salary);
+        Assertions.assertNotNull(list.get(2).birthday);
+    }
+
+    @Test
+    void queryObject_thenNullColumnsAreDefaultValues() {
+        Optional<PersonView> person = jdbc.queryObject("SELECT id, name, NULL, NULL FROM PERSON WHERE id = ?",
+                ConstructorRowMapper.of(PersonView.class), 5);
+
+        Assertions.assertTrue(person.isPresent());
+        Assertions.assertEquals(0.0, person.get().salary);
+        Assertions.assertNull(person.get().birthday);
+    }
+
+    @Test
+    void queryObject_thenFailIfColumnsAreMissing() {
+        Assertions.assertThrows(IllegalStateException.class, () ->
+                jdbc.queryObject("SELECT id FROM PERSON WHERE id = ?", ConstructorRowMapper.of(PersonView.class), 5));
+    }
+}
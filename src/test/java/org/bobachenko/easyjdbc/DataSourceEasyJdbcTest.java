@@ -23,13 +23,26 @@ Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
 
 package org.bobachenko.easyjdbc;
 
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.h2.tools.SimpleResultSet;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import javax.sql.DataSource;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class DataSourceEasyJdbcTest extends EasyJdbcTest {
 
@@ -88,6 +101,97 @@ class DataSourceEasyJdbcTest extends EasyJdbcTest {
         Assertions.assertEquals(assocList.size(), 3);
     }
 
+    @Test
+    void queryAssoc_thenMapColumnsToValues() {
+        List<Map<String, Object>> assocList = jdbc.queryAssoc("SELECT id, name, id FROM PERSON WHERE id = ?", 2);
+        Map<String, Object> row = assocList.get(0);
+
+        Assertions.assertEquals(2, row.size());
+        Assertions.assertEquals(2, row.get("ID"));
+        Assertions.assertEquals("Person 2", row.get("NAME"));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("ID", 2);
+        expected.put("NAME", "Person 2");
+        Assertions.assertEquals(expected, row);
+
+        row.put("NAME", "changed");
+        Assertions.assertEquals("changed", row.get("NAME"));
+    }
+
+    @Test
+    void queryAssoc_thenSortColumnsAndAllowChanges() {
+        List<Map<String, Object>> assocList = jdbc.queryAssoc("SELECT salary, name, id FROM PERSON WHERE id = ?", 2);
+        Map<String, Object> row = assocList.get(0);
+        Assertions.assertEquals(Arrays.asList("ID", "NAME", "SALARY"), new ArrayList<>(row.keySet()));
+
+        row.put("AGE", 30);
+        Assertions.assertNotNull(row.remove("SALARY"));
+        Assertions.assertEquals(Arrays.asList("AGE", "ID", "NAME"), new ArrayList<>(row.keySet()));
+        Assertions.assertEquals(30, row.get("AGE"));
+        Assertions.assertEquals("Person 2", row.get("NAME"));
+
+        row.entrySet().removeIf(entry -> entry.getKey().equals("ID"));
+        Assertions.assertEquals(2, row.size());
+        row.clear();
+        Assertions.assertTrue(row.isEmpty());
+
+        Map<String, Object> another = jdbc.queryAssoc("SELECT id FROM PERSON WHERE id = 1").get(0);
+        Iterator<Map.Entry<String, Object>> iterator = another.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        Assertions.assertTrue(another.isEmpty());
+    }
+
+    @Test
+    void queryPrimitive_thenReturnValueWithoutBoxing() {
+        Assertions.assertEquals(10L, jdbc.queryLong("SELECT COUNT(*) FROM PERSON").getAsLong());
+        Assertions.assertEquals(3, jdbc.queryInt("SELECT id FROM PERSON WHERE name = ?", "Person 3").getAsInt());
+        Assertions.assertEquals(1998.0, jdbc.queryDouble("SELECT salary FROM PERSON WHERE id = ?", 2).getAsDouble());
+
+        Assertions.assertFalse(jdbc.queryInt("SELECT id FROM PERSON WHERE id = ?", -1).isPresent());
+        Assertions.assertFalse(jdbc.queryLong("SELECT MAX(id) FROM PERSON WHERE id < ?", 0).isPresent());
+    }
+
+    @Test
+    void queryLongArray() {
+        long[] ids = jdbc.queryLongArray("SELECT id FROM PERSON WHERE id > ? ORDER BY id", 5);
+        Assertions.assertArrayEquals(new long[]{6, 7, 8, 9, 10}, ids);
+
+        Assertions.assertEquals(100, jdbc.queryLongArray("SELECT X FROM SYSTEM_RANGE(1, 100)").length);
+        Assertions.assertEquals(0, jdbc.queryLongArray("SELECT id FROM PERSON WHERE id < ?", 0).length);
+    }
+
+    @Test
+    void queryColumns_thenStorePrimitiveArrays() {
+        ColumnarResult result = jdbc.queryColumns("SELECT id, CAST(id AS BIGINT) AS big, salary, name, " +
+                "CASE WHEN id = 1 THEN NULL ELSE salary END AS bonus FROM PERSON WHERE id <= ? ORDER BY id", 3);
+
+        Assertions.assertEquals(3, result.getRowCount());
+        Assertions.assertEquals(5, result.getColumnCount());
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, result.getInts("ID"));
+        Assertions.assertArrayEquals(new long[]{1, 2, 3}, result.getLongs("BIG"));
+        Assertions.assertArrayEquals(new double[]{999.0, 1998.0, 2997.0}, result.getDoubles("SALARY"));
+        Assertions.assertArrayEquals(new Object[]{"Person 1", "Person 2", "Person 3"}, result.getObjects("NAME"));
+
+        int bonus = result.getColumnIndex("BONUS");
+        Assertions.assertArrayEquals(new boolean[]{true, false, false}, result.getNulls(bonus));
+        Assertions.assertNull(result.getObject(0, bonus));
+        Assertions.assertEquals(1998.0, result.getObject(1, bonus));
+        Assertions.assertThrows(IllegalStateException.class, () -> result.getLongs("ID"));
+    }
+
+    @Test
+    void queryColumns_thenGrowArrays() {
+        ColumnarResult result = jdbc.queryColumns("SELECT X FROM SYSTEM_RANGE(1, ?)", 1000);
+
+        long[] values = result.getLongs(0);
+        Assertions.assertEquals(1000, result.getRowCount());
+        Assertions.assertEquals(1000, values.length);
+        Assertions.assertEquals(1000, values[999]);
+        Assertions.assertEquals(1000, result.getNulls(0).length);
+    }
+
     @Test
     void queryList() {
         List<Person> list = jdbc.queryList("SELECT * FROM PERSON WHERE id < ?", Person::map, 4);
@@ -164,6 +268,189 @@ class DataSourceEasyJdbcTest extends EasyJdbcTest {
         Assertions.assertTrue(person.isPresent() && person.get().name.equals(""));
     }
 
+    @Test
+    void updateBatch_thenReturnCountForEveryRow() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            rows.add(new Object[]{"batch person " + i, new Date(), 100.0 * i, new Date()});
+
+        int[] counts = jdbc.updateBatch("INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?);",
+                rows, 3);
+
+        Assertions.assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1, 1}, counts);
+
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(id) FROM PERSON WHERE name LIKE 'batch person%'",
+                Long.class);
+        Assertions.assertTrue(count.isPresent() && count.get() == 7);
+    }
+
+    @Test
+    void updateBatchWithMapper_thenUpdateAllObjects() {
+        List<Person> persons = jdbc.queryList("SELECT * FROM PERSON WHERE id <= ?", Person::map, 5);
+
+        int[] counts = jdbc.updateBatch("UPDATE PERSON SET salary = ? WHERE id = ?", persons,
+                p -> new Object[]{p.salary + 1, p.id});
+
+        Assertions.assertEquals(5, counts.length);
+        Optional<Double> salary = jdbc.queryScalar("SELECT salary FROM PERSON WHERE id = ?", Double.class, 1);
+        Assertions.assertTrue(salary.isPresent() && salary.get() == 1000.0);
+    }
+
+    @Test
+    void createBatch_thenReturnAllKeys() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            rows.add(new Object[]{"batch person " + i, new Date(), 100.0 * i, new Date()});
+
+        List<Integer> keys = jdbc.createBatch("INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?);",
+                rows, Integer.class);
+
+        Assertions.assertEquals(3, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Optional<String> name = jdbc.queryScalar("SELECT name FROM PERSON WHERE id = ?", String.class, keys.get(i));
+            Assertions.assertTrue(name.isPresent() && name.get().equals("batch person " + i));
+        }
+    }
+
+    @Test
+    void createBatch_whenDriverReturnsOnlyLastKey_thenInsertOneByOne() {
+        String insert = "INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)";
+        EasyJdbc lastKeyJdbc = EasyJdbc.of(lastKeyOnly("Last key only"));
+
+        for (int call = 0; call < 2; call++) {
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                rows.add(new Object[]{"last key " + call + " " + i, new Date(), 100.0, new Date()});
+
+            List<Integer> keys = lastKeyJdbc.createBatch(insert, rows, Integer.class);
+
+            Assertions.assertEquals(3, keys.size());
+            for (int i = 0; i < keys.size(); i++)
+                Assertions.assertEquals("last key " + call + " " + i,
+                        jdbc.queryScalar("SELECT name FROM PERSON WHERE id = ?", String.class, keys.get(i)).get());
+        }
+        Assertions.assertEquals(6L, jdbc.queryLong("SELECT COUNT(*) FROM PERSON WHERE name LIKE 'last key%'")
+                .getAsLong());
+    }
+
+    @Test
+    void createBatch_whenDriverReturnsOnlyLastKeyAndFirstCallHasOneRow_thenProbeNextCall() {
+        String insert = "INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)";
+        EasyJdbc lastKeyJdbc = EasyJdbc.of(lastKeyOnly("Last key only, one row first"));
+
+        List<Integer> single = lastKeyJdbc.createBatch(insert,
+                Collections.singletonList(new Object[]{"single key", new Date(), 100.0, new Date()}), Integer.class);
+        Assertions.assertEquals(1, single.size());
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            rows.add(new Object[]{"single key " + i, new Date(), 100.0, new Date()});
+        List<Integer> keys = lastKeyJdbc.createBatch(insert, rows, Integer.class);
+
+        Assertions.assertEquals(3, keys.size());
+        for (int i = 0; i < keys.size(); i++)
+            Assertions.assertEquals("single key " + i,
+                    jdbc.queryScalar("SELECT name FROM PERSON WHERE id = ?", String.class, keys.get(i)).get());
+        Assertions.assertEquals(4L, jdbc.queryLong("SELECT COUNT(*) FROM PERSON WHERE name LIKE 'single key%'")
+                .getAsLong());
+    }
+
+    /**
+     * Data source whose driver returns only the key of the last row of a batch
+     */
+    private DataSource lastKeyOnly(String driverName) {
+        return wrap(DataSource.class, dataSource, (method, args) -> {
+            if (!method.getName().equals("getConnection"))
+                return NOT_HANDLED;
+            Connection connection = dataSource.getConnection();
+            return wrap(Connection.class, connection, (m, a) -> {
+                if (m.getName().equals("getMetaData")) {
+                    DatabaseMetaData metaData = connection.getMetaData();
+                    return wrap(DatabaseMetaData.class, metaData, (mm, aa) ->
+                            mm.getName().equals("getDriverName") ? driverName : NOT_HANDLED);
+                }
+                if (!m.getName().equals("prepareStatement"))
+                    return NOT_HANDLED;
+                PreparedStatement statement = (PreparedStatement) m.invoke(connection, a);
+                return wrap(PreparedStatement.class, statement, (sm, sa) -> {
+                    if (!sm.getName().equals("getGeneratedKeys"))
+                        return NOT_HANDLED;
+                    Object last = null;
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        while (keys.next())
+                            last = keys.getObject(1);
+                    }
+                    SimpleResultSet key = new SimpleResultSet();
+                    key.addColumn("ID", Types.INTEGER, 10, 0);
+                    key.addRow(last);
+                    return key;
+                });
+            });
+        });
+    }
+
+    private static final Object NOT_HANDLED = new Object();
+
+    /**
+     * Proxy which passes calls to the target if the handler returns NOT_HANDLED
+     */
+    private static <T> T wrap(Class<T> type, T target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.invoke(method, args);
+            if (result != NOT_HANDLED)
+                return result;
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    @Test
+    void queryStream_thenReturnAllRows() {
+        try (Stream<Person> stream = jdbc.queryStream("SELECT * FROM PERSON WHERE id < ?", 2, Person::map, 8)) {
+            Assertions.assertEquals(7, stream.count());
+        }
+    }
+
+    @Test
+    void queryStreamPartlyConsumed_thenReleaseConnection() {
+        EasyPooledDataSource pool = EasyPooledDataSource.builder(dataSource).maxSize(1).build();
+        EasyJdbc pooledJdbc = EasyJdbc.of(pool);
+
+        try (Stream<Person> stream = pooledJdbc.queryStream("SELECT * FROM PERSON ORDER BY id", Person::map)) {
+            List<Person> firstTwo = stream.limit(2).collect(Collectors.toList());
+            Assertions.assertEquals(2, firstTwo.size());
+            Assertions.assertEquals(1, pool.getActiveConnections());
+        }
+
+        Assertions.assertEquals(0, pool.getActiveConnections());
+        pool.close();
+    }
+
+    @Test
+    void forEachRow_thenProcessAllRows() {
+        double[] sum = {0};
+        int processed = jdbc.forEachRow("SELECT salary FROM PERSON WHERE id <= ?", (rs, num) -> {
+            sum[0] += rs.getDouble(1);
+            return true;
+        }, 3);
+
+        Assertions.assertEquals(3, processed);
+        Assertions.assertEquals(999.0 * 6, sum[0]);
+    }
+
+    @Test
+    void forEachRow_thenStopEarly() {
+        int processed = jdbc.forEachRow("SELECT * FROM PERSON ORDER BY id", 2, (rs, num) -> num < 4);
+        Assertions.assertEquals(5, processed);
+    }
+
     // It doesn't work for H2 database
     @Disabled
     @Test
@@ -27,10 +27,17 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
 import org.bobachenko.easyjdbc.exception.EasySqlException;
 
+import javax.sql.DataSource;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 class EasyTransactionTest extends EasyJdbcTest {
 
@@ -88,4 +95,218 @@ class EasyTransactionTest extends EasyJdbcTest {
 
         Assertions.assertFalse(person.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    void run_whenPooledDataSource_thenUseStatementCacheOfPool() {
+        EasyPooledDataSource pool = EasyPooledDataSource.builder(dataSource).maxSize(1).build();
+
+        EasyTransaction.of(pool).run(jdbc -> {
+            Assertions.assertSame(pool.getStatementCacheStatistics(),
+                    ((EasyJdbcImpl) jdbc).getStatementCacheStatistics());
+            for (int i = 0; i < 2; i++)
+                jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE id > ?", Long.class, i);
+        }).commit();
+
+        Assertions.assertEquals(1, pool.getStatementCacheStatistics().getMisses());
+        Assertions.assertEquals(1, pool.getStatementCacheStatistics().getHits());
+        pool.close();
+    }
+
+    @Test
+    void runDeferred_thenFlushBeforeReadAndAtCommit() {
+        String insert = "INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)";
+        List<CompletableFuture<Integer>> inserts = new ArrayList<>();
+        AtomicReference<CompletableFuture<Integer>> update = new AtomicReference<>();
+
+        EasyTransaction.of(dataSource).runDeferred(jdbc -> {
+            for (int i = 0; i < 3; i++)
+                inserts.add(jdbc.updateDeferred(insert, "deferred", new Date(), 100.0, new Date()));
+            Assertions.assertFalse(inserts.get(0).isDone());
+
+            Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE name = ?", Long.class, "deferred");
+            Assertions.assertEquals(Long.valueOf(3), count.get());
+            Assertions.assertTrue(inserts.stream().allMatch(future -> future.join() == 1));
+
+            update.set(jdbc.updateDeferred("UPDATE PERSON SET salary = ? WHERE name = ?", 200.0, "deferred"));
+        }).commit();
+
+        Assertions.assertEquals(Integer.valueOf(3), update.get().join());
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE name = ? AND salary = ?",
+                Long.class, "deferred", 200.0);
+        Assertions.assertEquals(Long.valueOf(3), count.get());
+    }
+
+    @Test
+    void runDeferred_whenNamedParametersReused_thenKeepQueuedValues() {
+        String insert = "INSERT INTO PERSON (name, birthday, salary, lastLogin) " +
+                "VALUES (:name, '2018-07-07', :salary, '2018-07-07 00:00:00')";
+
+        EasyTransaction.of(dataSource).runDeferred(jdbc -> {
+            NamedParameters params = NamedParameters.of("name", "reusedFirst").with("salary", 100.0);
+            jdbc.updateDeferred(insert, params);
+            params.with("name", "reusedSecond").with("salary", 200.0);
+            jdbc.updateDeferred(insert, params);
+        }).commit();
+
+        Assertions.assertEquals(Optional.of(100.0), jdbc.queryScalar(
+                "SELECT salary FROM PERSON WHERE name = ?", Double.class, "reusedFirst"));
+        Assertions.assertEquals(Optional.of(200.0), jdbc.queryScalar(
+                "SELECT salary FROM PERSON WHERE name = ?", Double.class, "reusedSecond"));
+    }
+
+    @Test
+    void runDeferred_thenFailFuturesAndRollback() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        Assertions.assertThrows(EasySqlException.class, () -> EasyTransaction.of(dataSource).runDeferred(jdbc -> {
+            jdbc.update("INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)",
+                    "rolledBack", new Date(), 100.0, new Date());
+            futures.add(jdbc.updateDeferred("UPDATE PERSON SET salary = ? WHERE name = ?", 200.0, "rolledBack"));
+            futures.add(jdbc.updateDeferred("UPDATE PERSON SET nameEEEEE = ? WHERE name = ?", "", "rolledBack"));
+            futures.add(jdbc.updateDeferred("DELETE FROM PERSON WHERE name = ?", "rolledBack"));
+        }).commit());
+
+        Assertions.assertEquals(Integer.valueOf(1), futures.get(0).join());
+        Assertions.assertTrue(futures.get(1).isCompletedExceptionally());
+        Assertions.assertTrue(futures.get(2).isCompletedExceptionally());
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE name = ?", Long.class, "rolledBack");
+        Assertions.assertEquals(Long.valueOf(0), count.get());
+    }
+
+    @Test
+    void runDeferred_whenConsumerFails_thenCancelQueued() {
+        AtomicReference<CompletableFuture<Integer>> future = new AtomicReference<>();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> EasyTransaction.of(dataSource).runDeferred(jdbc -> {
+            future.set(jdbc.updateDeferred("DELETE FROM PERSON"));
+            throw new IllegalStateException();
+        }));
+
+        Assertions.assertTrue(future.get().isCancelled());
+    }
+
+    @Test
+    void withRetry_whenTransientFailure_thenRunAllBlocksAgain() {
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(3).initialBackoff(1).build();
+        String insert = "INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)";
+        int[] attempts = {0};
+
+        EasyTransaction.of(dataSource).withRetry(policy)
+                .run(jdbc -> jdbc.update(insert, "retriedFirst", new Date(), 100.0, new Date()))
+                .run(jdbc -> {
+                    jdbc.update(insert, "retriedSecond", new Date(), 100.0, new Date());
+                    if (++attempts[0] < 3)
+                        throw new EasySqlException("Deadlock", new SQLException("Deadlock", "40001"));
+                }).commit();
+
+        Assertions.assertEquals(3, attempts[0]);
+        Assertions.assertEquals(2, policy.getRetryCount());
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE name LIKE 'retried%'", Long.class);
+        Assertions.assertEquals(Long.valueOf(2), count.get());
+    }
+
+    @Test
+    void withRetry_whenNotTransientOrTooManyAttempts_thenFail() {
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(2).initialBackoff(1).build();
+        int[] attempts = {0};
+
+        Assertions.assertThrows(EasySqlException.class, () -> EasyTransaction.of(dataSource).withRetry(policy)
+                .run(jdbc -> {
+                    attempts[0]++;
+                    throw new EasySqlException("Syntax", new SQLException("Syntax", "42000"));
+                }));
+        Assertions.assertEquals(1, attempts[0]);
+
+        Assertions.assertThrows(EasySqlException.class, () -> EasyTransaction.of(dataSource).withRetry(policy)
+                .run(jdbc -> {
+                    attempts[0]++;
+                    throw new EasySqlException("Deadlock", new SQLException("Deadlock", "40P01"));
+                }));
+        Assertions.assertEquals(3, attempts[0]);
+        Assertions.assertEquals(1, policy.getRetryCount());
+    }
+
+    @Test
+    void withRetry_whenRollbackFails_thenRetryOnNewConnection() {
+        List<Connection> opened = new ArrayList<>();
+        int[] closed = {0};
+        DataSource failingRollback = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getConnection"))
+                        return method.invoke(dataSource, args);
+                    Connection connection = dataSource.getConnection();
+                    Connection wrapper = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[]{Connection.class}, (p, m, a) -> {
+                                if (m.getName().equals("rollback") && opened.size() == 1)
+                                    throw new SQLException("Connection is broken", "08006");
+                                if (m.getName().equals("close"))
+                                    closed[0]++;
+                                try {
+                                    return m.invoke(connection, a);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                    opened.add(wrapper);
+                    return wrapper;
+                });
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(2).initialBackoff(1).build();
+        int[] attempts = {0};
+
+        EasyTransaction.of(failingRollback).withRetry(policy).run(jdbc -> {
+            jdbc.queryScalar("SELECT COUNT(*) FROM PERSON", Long.class);
+            if (++attempts[0] < 2)
+                throw new EasySqlException("Deadlock", new SQLException("Deadlock", "40001"));
+        }).commit();
+
+        Assertions.assertEquals(2, attempts[0]);
+        Assertions.assertEquals(2, opened.size());
+        Assertions.assertEquals(2, closed[0]);
+    }
+
+    @Test
+    void withRetry_whenCommitFailsWithoutRun_thenRetryCommit() {
+        int[] commits = {0};
+        TransactionalConnectionManager connectionManager = new TransactionalConnectionManager(dataSource) {
+            @Override
+            void commit() throws SQLException {
+                if (++commits[0] < 2)
+                    throw new SQLException("Deadlock", "40001");
+                super.commit();
+            }
+        };
+
+        new EasyTransactionImpl(connectionManager)
+                .withRetry(RetryPolicy.builder().maxAttempts(2).initialBackoff(1).build())
+                .commit();
+
+        Assertions.assertEquals(2, commits[0]);
+    }
+
+    @Test
+    void withRetry_whenDeferredBlockReplayed_thenCancelFuturesOfFailedAttempt() {
+        int[] commits = {0};
+        TransactionalConnectionManager connectionManager = new TransactionalConnectionManager(dataSource) {
+            @Override
+            void commit() throws SQLException {
+                if (++commits[0] < 2)
+                    throw new SQLException("Deadlock", "40001");
+                super.commit();
+            }
+        };
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        new EasyTransactionImpl(connectionManager)
+                .withRetry(RetryPolicy.builder().maxAttempts(2).initialBackoff(1).build())
+                .runDeferred(jdbc -> futures.add(jdbc.updateDeferred(
+                        "INSERT INTO PERSON (name, birthday, salary, lastLogin) VALUES (?, ?, ?, ?)",
+                        "replayed", new Date(), 100.0, new Date())))
+                .commit();
+
+        Assertions.assertEquals(2, futures.size());
+        Assertions.assertTrue(futures.get(0).isCancelled());
+        Assertions.assertEquals(Integer.valueOf(1), futures.get(1).join());
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM PERSON WHERE name = ?", Long.class, "replayed");
+        Assertions.assertEquals(Long.valueOf(1), count.get());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class NamedParametersTest extends EasyJdbcTest {
+
+    /*
+                a bean with getters
+     */
+    public static class SalaryChange {
+        private final int id;
+        private final double newSalary;
+
+        SalaryChange(int id, double newSalary) {
+            this.id = id;
+            this.newSalary = newSalary;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getNewSalary() {
+            return newSalary;
+        }
+    }
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+    }
+
+    @Test
+    void compile_thenReplaceNamesAndSkipLiterals() {
+        NamedSql named = NamedSql.compile("SELECT ':skip', \"col:x\", a::text FROM t -- :comment\n" +
+                "WHERE id = :id AND (name = :name OR alias = :name) /* :block */");
+
+        Assertions.assertEquals("SELECT ':skip', \"col:x\", a::text FROM t -- :comment\n" +
+                "WHERE id = ? AND (name = ? OR alias = ?) /* :block */", named.getSql());
+        Assertions.assertArrayEquals(new String[]{"id", "name"}, named.getNames());
+        Assertions.assertArrayEquals(new int[]{1}, named.getPositions(0));
+        Assertions.assertArrayEquals(new int[]{2, 3}, named.getPositions(1));
+        Assertions.assertSame(NamedSql.of("SELECT :a"), NamedSql.of("SELECT :a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> NamedSql.compile("SELECT :a, ?"));
+    }
+
+    @Test
+    void of_whenCacheIsFull_thenCacheNewSql() {
+        for (int i = 0; i <= 5000; i++)
+            NamedSql.of("SELECT * FROM t WHERE id = " + i + " AND name = :name");
+
+        String sql = "SELECT * FROM t WHERE name = :name AND id = :id";
+        Assertions.assertSame(NamedSql.of(sql), NamedSql.of(sql));
+    }
+
+    @Test
+    void query_thenBindMapValues() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("min", 2);
+        values.put("max", 4);
+
+        List<Integer> ids = jdbc.queryList("SELECT id FROM PERSON WHERE id >= :min AND id <= :max " +
+                "AND id <> :max ORDER BY id", (rs, n) -> rs.getInt(1), NamedParameters.of(values));
+        Assertions.assertEquals(Arrays.asList(2, 3), ids);
+
+        Assertions.assertEquals("Person 5", jdbc.queryScalar("SELECT name FROM PERSON WHERE id = :id",
+                String.class, NamedParameters.of("id", 5)).orElse(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> jdbc.queryScalar(
+                "SELECT name FROM PERSON WHERE id = :id", String.class, NamedParameters.of("other", 5)));
+    }
+
+    @Test
+    void update_thenBindBeanProperties() {
+        int updated = jdbc.update("UPDATE PERSON SET salary = :new_salary WHERE id = :id",
+                NamedParameters.of(new SalaryChange(1, 1.5)));
+        Assertions.assertEquals(1, updated);
+        Assertions.assertEquals(1.5, jdbc.queryDouble("SELECT salary FROM PERSON WHERE id = ?", 1).getAsDouble());
+
+        int[] counts = jdbc.updateBatch("UPDATE PERSON SET salary = :newSalary WHERE id = :id",
+                Arrays.asList(new SalaryChange(2, 2.5), new SalaryChange(3, 3.5)),
+                change -> new Object[]{NamedParameters.of(change)});
+        Assertions.assertArrayEquals(new int[]{1, 1}, counts);
+        Assertions.assertEquals(6.0, jdbc.queryDouble("SELECT SUM(salary) FROM PERSON WHERE id IN (2, 3)")
+                .getAsDouble());
+
+        List<Integer> keys = jdbc.createBatch("INSERT INTO PERSON (name) VALUES (:name)",
+                Collections.singletonList(new Object[]{NamedParameters.of("name", "Named")}), Integer.class);
+        Assertions.assertEquals("Named", jdbc.queryScalar("SELECT name FROM PERSON WHERE id = :id",
+                String.class, NamedParameters.of("id", keys.get(0))).orElse(null));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+class ParameterBindersTest extends EasyJdbcTest {
+
+    /*
+                a type without built-in binder
+     */
+    static final class Money {
+        final long cents;
+
+        Money(long cents) {
+            this.cents = cents;
+        }
+    }
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        EasyJdbc.of(dataSource).update("CREATE TABLE TYPED_VALUES(id INT PRIMARY KEY, day DATE, " +
+                "moment TIMESTAMP, uid UUID, data VARBINARY(16), amount BIGINT)");
+    }
+
+    @AfterAll
+    static void dropTable() {
+        EasyJdbc.of(dataSource).update("DROP TABLE TYPED_VALUES");
+    }
+
+    @Test
+    void bindJavaTimeUuidAndBinary() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+        LocalDate day = LocalDate.of(2018, 7, 7);
+        LocalDateTime moment = LocalDateTime.of(2018, 7, 7, 10, 20, 30);
+        UUID uid = UUID.randomUUID();
+        byte[] data = {1, 2, 3};
+
+        jdbc.update("INSERT INTO TYPED_VALUES (id, day, moment, uid, data) VALUES (?, ?, ?, ?, ?)",
+                1, day, moment, uid, data);
+
+        Optional<Object[]> row = jdbc.queryObject("SELECT day, moment, uid, data FROM TYPED_VALUES " +
+                        "WHERE day = ? AND moment = ? AND uid = ?",
+                (rs, num) -> new Object[]{rs.getDate(1).toLocalDate(), rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getObject(3), rs.getBytes(4)},
+                day, moment, uid);
+
+        Assertions.assertTrue(row.isPresent());
+        Assertions.assertEquals(day, row.get()[0]);
+        Assertions.assertEquals(moment, row.get()[1]);
+        Assertions.assertEquals(uid, row.get()[2]);
+        Assertions.assertArrayEquals(data, (byte[]) row.get()[3]);
+    }
+
+    @Test
+    void bindEnum_thenPassToSetObject() throws SQLException {
+        List<Object[]> calls = new ArrayList<>();
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    calls.add(new Object[]{method.getName(), args[1]});
+                    return null;
+                });
+
+        ParameterBinders.bind(statement, 1, Thread.State.NEW);
+
+        Assertions.assertEquals(1, calls.size());
+        Assertions.assertEquals("setObject", calls.get(0)[0]);
+        Assertions.assertSame(Thread.State.NEW, calls.get(0)[1]);
+    }
+
+    @Test
+    void bindRegisteredType() {
+        ParameterBinders.register(Money.class, Types.BIGINT, (st, i, v) -> st.setLong(i, v.cents));
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+
+        jdbc.update("INSERT INTO TYPED_VALUES (id, amount) VALUES (?, ?)", 2, new Money(12345));
+
+        Optional<Long> amount = jdbc.queryScalar("SELECT amount FROM TYPED_VALUES WHERE id = ?", Long.class, 2);
+        Assertions.assertTrue(amount.isPresent() && amount.get() == 12345);
+    }
+
+    @Test
+    void bindTypedNull() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+
+        jdbc.update("INSERT INTO TYPED_VALUES (id, day, uid) VALUES (?, ?, ?)",
+                3, NullValue.of(LocalDate.class), null);
+
+        Optional<Long> count = jdbc.queryScalar("SELECT COUNT(*) FROM TYPED_VALUES WHERE id = ? " +
+                "AND day IS NULL AND uid IS NULL", Long.class, 3);
+        Assertions.assertTrue(count.isPresent() && count.get() == 1);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+class PartitionedQueryTest extends EasyJdbcTest {
+
+    private static final int ROWS = 1000;
+
+    @BeforeAll
+    static void createTable() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+        jdbc.update("CREATE TABLE NUMBERS(id BIGINT PRIMARY KEY, grp INT)");
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= ROWS; id++)
+            rows.add(new Object[]{id, (int) (id % 2)});
+        jdbc.updateBatch("INSERT INTO NUMBERS VALUES (?, ?)", rows);
+    }
+
+    @AfterAll
+    static void dropTable() {
+        EasyJdbc.of(dataSource).update("DROP TABLE NUMBERS");
+    }
+
+    @Test
+    void queryPartitioned_thenReturnAllRowsInOrderOfRanges() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Long> ids = EasyJdbc.of(dataSource).queryPartitioned("SELECT id FROM NUMBERS WHERE grp = ? ORDER BY id;",
+                "id", 1, ROWS, 7, (rs, n) -> {
+                    threads.add(Thread.currentThread().getName());
+                    return rs.getLong(1);
+                }, 0);
+
+        Assertions.assertEquals(LongStream.rangeClosed(1, ROWS / 2).map(i -> i * 2).boxed()
+                .collect(Collectors.toList()), ids);
+        Assertions.assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    void queryPartitioned_whenOneConnection_thenRunSequentially() throws SQLException {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (Connection connection = dataSource.getConnection()) {
+            List<Long> ids = EasyJdbc.of(connection).queryPartitioned("SELECT n.id FROM NUMBERS n",
+                    "n.id", 1, ROWS, 4, (rs, n) -> {
+                        threads.add(Thread.currentThread().getName());
+                        return rs.getLong(1);
+                    });
+            Assertions.assertEquals(ROWS, ids.size());
+        }
+        Assertions.assertEquals(1, threads.size());
+    }
+
+    @Test
+    void queryPartitioned_thenSupportNamedParametersAndWideRanges() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+
+        List<Long> ids = jdbc.queryPartitioned("SELECT id FROM NUMBERS WHERE id <= :last", "id",
+                Long.MIN_VALUE, Long.MAX_VALUE, 5, (rs, n) -> rs.getLong(1), NamedParameters.of("last", 10));
+        Assertions.assertEquals(10, ids.size());
+
+        Assertions.assertEquals(3, jdbc.queryPartitioned("SELECT id FROM NUMBERS", "id", 5, 7, 10,
+                (rs, n) -> rs.getLong(1)).size());
+        Assertions.assertEquals(1, jdbc.queryPartitioned("SELECT id FROM NUMBERS", "id", 5, 5, 3,
+                (rs, n) -> rs.getLong(1)).size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> jdbc.queryPartitioned(
+                "SELECT id FROM NUMBERS", "id; DROP TABLE NUMBERS", 1, 2, 2, (rs, n) -> rs.getLong(1)));
+    }
+
+    @Test
+    void queryPartitioned_thenRunNoMorePartitionsThanPoolSize() {
+        EasyPooledDataSource pool = EasyPooledDataSource.builder(dataSource).maxSize(2).build();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Integer> counts = EasyJdbc.of(pool).queryPartitioned("SELECT id FROM NUMBERS", "id", 1, ROWS, 8,
+                (rs, n) -> {
+                    if (n == 0) {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        LockSupport.parkNanos(10_000_000);
+                        running.decrementAndGet();
+                    }
+                    return n;
+                });
+
+        Assertions.assertEquals(ROWS, counts.size());
+        Assertions.assertEquals(2, maxRunning.get());
+        Assertions.assertEquals(0, pool.getActiveConnections());
+        pool.close();
+    }
+
+    @Test
+    void forEachRowPartitioned_thenProcessAllOrStop() {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+        AtomicLong sum = new AtomicLong();
+
+        int processed = jdbc.forEachRowPartitioned("SELECT id FROM NUMBERS", "id", 1, ROWS, 4, (rs, n) -> {
+            sum.addAndGet(rs.getLong(1));
+            return true;
+        });
+        Assertions.assertEquals(ROWS, processed);
+        Assertions.assertEquals((long) ROWS * (ROWS + 1) / 2, sum.get());
+
+        int stopped = jdbc.forEachRowPartitioned("SELECT id FROM NUMBERS", "id", 1, ROWS, 4, (rs, n) -> false);
+        Assertions.assertTrue(stopped >= 1 && stopped <= 4);
+    }
+
+    @Test
+    void forEachRowPartitioned_whenPartitionFails_thenStopAndWaitForOthers() throws InterruptedException {
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+        AtomicLong calls = new AtomicLong();
+
+        Assertions.assertThrows(IllegalStateException.class, () ->
+                jdbc.forEachRowPartitioned("SELECT id FROM NUMBERS", "id", 1, ROWS, 4, (rs, n) -> {
+                    calls.incrementAndGet();
+                    if (rs.getLong(1) == 1)
+                        throw new IllegalStateException("failure");
+                    LockSupport.parkNanos(1_000_000);
+                    return true;
+                }));
+
+        long afterReturn = calls.get();
+        Thread.sleep(50);
+        Assertions.assertEquals(afterReturn, calls.get());
+        Assertions.assertTrue(afterReturn < ROWS);
+    }
+}
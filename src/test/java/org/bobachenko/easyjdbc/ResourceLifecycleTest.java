@@ -0,0 +1,160 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks that statements and result sets are closed by EasyJdbc
+ */
+class ResourceLifecycleTest extends EasyJdbcTest {
+
+    private static final int CALLS = 3000;
+
+    private final Set<Object> openStatements = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<Object> openResultSets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+    }
+
+    @Test
+    void externalConnection_thenStatementsAreNotLeaked() throws SQLException {
+        try (Connection connection = tracked(dataSource.getConnection())) {
+            EasyJdbcImpl external = EasyJdbc.of(connection);
+
+            for (int i = 0; i < CALLS; i++) {
+                external.queryObject("SELECT * FROM PERSON WHERE id = ?", Person::map, i % 10 + 1);
+                external.queryScalar("SELECT COUNT(id) FROM PERSON", Long.class);
+                external.update("UPDATE PERSON SET salary = ? WHERE id = ?", 1.0 * i, 1);
+            }
+
+            Assertions.assertEquals(0, openStatements.size());
+            Assertions.assertEquals(0, openResultSets.size());
+        }
+    }
+
+    @Test
+    void manyInstancesOnExternalConnection_thenStatementsAreNotLeaked() throws SQLException {
+        try (Connection connection = tracked(dataSource.getConnection())) {
+            for (int i = 0; i < CALLS; i++)
+                EasyJdbc.of(connection).queryScalar("SELECT COUNT(id) FROM PERSON", Long.class);
+
+            Assertions.assertEquals(0, openStatements.size());
+            Assertions.assertEquals(0, openResultSets.size());
+        }
+    }
+
+    @Test
+    void transaction_thenStatementsAreNotLeaked() throws SQLException {
+        DataSource trackedDataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection ? tracked((Connection) result) : result;
+                });
+
+        EasyTransaction.of(trackedDataSource).run(transactional -> {
+            for (int i = 0; i < CALLS; i++) {
+                Optional<Integer> id = transactional.create("INSERT INTO PERSON (name, birthday, salary, lastLogin) " +
+                        "VALUES (?, ?, ?, ?);", Integer.class, "person " + i, new Date(), 1.0, new Date());
+                Assertions.assertTrue(id.isPresent());
+            }
+
+            Assertions.assertTrue(openStatements.size() <= 1, "Open statements: " + openStatements.size());
+            Assertions.assertEquals(0, openResultSets.size());
+        }).commit();
+
+        Assertions.assertEquals(0, openStatements.size());
+    }
+
+    @Test
+    void failedQuery_thenStatementIsClosed() throws SQLException {
+        try (Connection connection = tracked(dataSource.getConnection())) {
+            EasyJdbc external = EasyJdbc.of(connection);
+
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertThrows(IllegalStateException.class, () ->
+                        external.queryList("SELECT * FROM PERSON", (rs, num) -> {
+                            throw new IllegalStateException();
+                        }));
+            }
+
+            Assertions.assertTrue(openStatements.size() <= 1, "Open statements: " + openStatements.size());
+            Assertions.assertEquals(0, openResultSets.size());
+        }
+    }
+
+    /**
+     * Wraps the connection to track statements and result sets which aren't closed
+     */
+    private Connection tracked(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement)
+                        return track((PreparedStatement) result, PreparedStatement.class, openStatements);
+                    return result;
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T track(T target, Class<T> type, Set<Object> open) {
+        open.add(target);
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close"))
+                        open.remove(target);
+                    Object result = invoke(target, method, args);
+                    if (result instanceof ResultSet && target instanceof Statement)
+                        return track((ResultSet) result, ResultSet.class, openResultSets);
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
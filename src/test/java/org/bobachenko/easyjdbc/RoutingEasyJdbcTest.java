@@ -0,0 +1,128 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+class RoutingEasyJdbcTest {
+
+    private static final String DB_DRIVER = "org.h2.Driver";
+    private static final String NODE_SQL = "SELECT name FROM NODE";
+
+    private static DataSource primary;
+    private static DataSource replica1;
+    private static DataSource replica2;
+
+    @BeforeAll
+    static void createDatabases() {
+        primary = createDatabase("primary");
+        replica1 = createDatabase("replica1");
+        replica2 = createDatabase("replica2");
+    }
+
+    @AfterAll
+    static void dropDatabases() {
+        for (DataSource dataSource : new DataSource[]{primary, replica1, replica2})
+            EasyJdbc.of(dataSource).update("DROP TABLE NODE");
+    }
+
+    private static DataSource createDatabase(String name) {
+        DataSource dataSource = EasyDataSource.of(DB_DRIVER, "jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1", "", "");
+        EasyJdbc jdbc = EasyJdbc.of(dataSource);
+        jdbc.update("CREATE TABLE NODE(name VARCHAR(16))");
+        jdbc.update("INSERT INTO NODE VALUES (?)", name);
+        return dataSource;
+    }
+
+    @Test
+    void roundRobin_thenReadFromReplicasInTurn() {
+        EasyJdbc jdbc = RoutingEasyJdbc.builder(primary).replica(replica1).replica(replica2).build();
+
+        Assertions.assertEquals(Optional.of("replica1"), jdbc.queryScalar(NODE_SQL, String.class));
+        Assertions.assertEquals(Optional.of("replica2"), jdbc.queryScalar(NODE_SQL, String.class));
+        Assertions.assertEquals(Optional.of("replica1"), jdbc.queryScalar(NODE_SQL, String.class));
+    }
+
+    @Test
+    void replicas_thenReadOnlyConnections() {
+        // H2 ignores the read only flag, so calls are recorded by a proxy
+        List<Boolean> readOnly = new ArrayList<>();
+        DataSource recording = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = method.invoke(replica1, args);
+                    if (!method.getName().equals("getConnection"))
+                        return result;
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (conProxy, conMethod, conArgs) -> {
+                                if (conMethod.getName().equals("setReadOnly"))
+                                    readOnly.add((Boolean) conArgs[0]);
+                                return conMethod.invoke(connection, conArgs);
+                            });
+                });
+        EasyJdbc jdbc = RoutingEasyJdbc.builder(primary).replica(recording).build();
+
+        Assertions.assertEquals(Optional.of("replica1"), jdbc.queryScalar(NODE_SQL, String.class));
+        Assertions.assertEquals(Collections.singletonList(true), readOnly);
+    }
+
+    @Test
+    void leastOutstanding_thenSkipBusyReplica() {
+        EasyJdbc jdbc = RoutingEasyJdbc.builder(primary).replica(replica1).replica(replica2)
+                .balancing(RoutingEasyJdbc.Balancing.LEAST_OUTSTANDING).build();
+
+        try (Stream<String> busy = jdbc.queryStream(NODE_SQL, (rs, n) -> rs.getString(1))) {
+            Assertions.assertEquals(Optional.of("replica2"), jdbc.queryScalar(NODE_SQL, String.class));
+            Assertions.assertEquals(Optional.of("replica2"), jdbc.queryScalar(NODE_SQL, String.class));
+            Assertions.assertEquals("replica1", busy.findFirst().get());
+        }
+        Assertions.assertEquals(Optional.of("replica2"), jdbc.queryScalar(NODE_SQL, String.class));
+        Assertions.assertEquals(Optional.of("replica1"), jdbc.queryScalar(NODE_SQL, String.class));
+    }
+
+    @Test
+    void writesAndTransactions_thenUsePrimary() {
+        RoutingEasyJdbc jdbc = RoutingEasyJdbc.builder(primary).replica(replica1).build();
+
+        jdbc.update("INSERT INTO NODE VALUES (?)", "write");
+        jdbc.transaction().run(tx -> tx.update("INSERT INTO NODE VALUES (?)", "transaction")).commit();
+
+        Assertions.assertEquals(Optional.of(3L), jdbc.getPrimary().queryScalar("SELECT COUNT(*) FROM NODE", Long.class));
+        Assertions.assertEquals(Optional.of(1L), jdbc.queryScalar("SELECT COUNT(*) FROM NODE", Long.class));
+        jdbc.update("DELETE FROM NODE WHERE name <> ?", "primary");
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyPooledDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+class RowSubscriptionTest extends EasyJdbcTest {
+
+    /*
+                sink which records signals
+     */
+    static class RecordingSink implements RowSubscription.Sink<Integer> {
+        final List<Integer> items = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private EasyPooledDataSource pool;
+    private EasyJdbcImpl pooledJdbc;
+
+    @BeforeEach
+    @Override
+    protected void beforeEachTest() throws SQLException {
+        super.beforeEachTest();
+        pool = EasyPooledDataSource.builder(dataSource).build();
+        pooledJdbc = EasyJdbc.of(pool);
+    }
+
+    @AfterEach
+    void afterEachTest() {
+        pool.close();
+    }
+
+    private RowSubscription<Integer> subscribe(RowSubscription.Sink<Integer> sink) {
+        return new RowSubscription<>(fetchSize -> pooledJdbc.openCursor("SELECT id FROM PERSON ORDER BY id",
+                fetchSize, (rs, n) -> rs.getInt(1)), sink, Runnable::run, 4);
+    }
+
+    @Test
+    void request_thenDeliverOnlyRequestedRows() {
+        RecordingSink sink = new RecordingSink();
+        RowSubscription<Integer> subscription = subscribe(sink);
+        Assertions.assertEquals(0, pool.getActiveConnections());
+
+        subscription.request(3);
+        Assertions.assertEquals(3, sink.items.size());
+        Assertions.assertFalse(sink.completed);
+        Assertions.assertEquals(1, pool.getActiveConnections());
+
+        subscription.request(Long.MAX_VALUE);
+        Assertions.assertEquals(10, sink.items.size());
+        Assertions.assertTrue(sink.completed);
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void cancel_thenReleaseConnection() {
+        RecordingSink sink = new RecordingSink();
+        RowSubscription<Integer> subscription = subscribe(sink);
+        subscription.request(2);
+        subscription.cancel();
+        subscription.request(2);
+
+        Assertions.assertEquals(2, sink.items.size());
+        Assertions.assertFalse(sink.completed);
+        Assertions.assertNull(sink.error);
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void request_thenFailOnWrongNumber() {
+        RecordingSink sink = new RecordingSink();
+        RowSubscription<Integer> subscription = subscribe(sink);
+        subscription.request(1);
+        subscription.request(0);
+
+        Assertions.assertTrue(sink.error instanceof IllegalArgumentException);
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void request_thenDontRecurseFromOnNext() {
+        List<RowSubscription<Integer>> holder = new ArrayList<>();
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void onNext(Integer item) {
+                super.onNext(item);
+                holder.get(0).request(1);
+            }
+        };
+        holder.add(subscribe(sink));
+        holder.get(0).request(1);
+
+        Assertions.assertEquals(10, sink.items.size());
+        Assertions.assertTrue(sink.completed);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc;
+
+import org.bobachenko.easyjdbc.datasource.EasyDataSource;
+import org.bobachenko.easyjdbc.exception.EasySqlException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class ShardedEasyJdbcTest {
+
+    private static final String DB_DRIVER = "org.h2.Driver";
+
+    private static List<DataSource> dataSources;
+    private static ShardedEasyJdbc<Integer> sharded;
+
+    @BeforeAll
+    static void createShards() {
+        dataSources = IntStream.range(0, 3)
+                .mapToObj(i -> EasyDataSource.of(DB_DRIVER, "jdbc:h2:mem:shard_" + i + ";DB_CLOSE_DELAY=-1", "", ""))
+                .collect(Collectors.toList());
+        sharded = ShardedEasyJdbc.<Integer>builder(tenant -> dataSources.get(tenant % 3), dataSources).build();
+
+        for (EasyJdbc shard : sharded.getShards()) {
+            shard.update("CREATE TABLE ACCOUNT(id INT PRIMARY KEY, tenant INT)");
+            shard.update("CREATE ALIAS SLEEP FOR \"java.lang.Thread.sleep(long)\"");
+        }
+        for (int id = 1; id <= 9; id++)
+            sharded.shard(id).update("INSERT INTO ACCOUNT VALUES (?, ?)", id, id);
+    }
+
+    @AfterAll
+    static void dropShards() {
+        for (EasyJdbc shard : sharded.getShards()) {
+            shard.update("DROP TABLE ACCOUNT");
+            shard.update("DROP ALIAS SLEEP");
+        }
+        sharded.close();
+    }
+
+    @Test
+    void shard_thenUseDatabaseOfKey() {
+        Assertions.assertEquals(3, sharded.getShards().size());
+        List<Integer> tenants = sharded.shard(4).queryList("SELECT tenant FROM ACCOUNT ORDER BY id",
+                (rs, n) -> rs.getInt(1));
+        Assertions.assertEquals(Arrays.asList(1, 4, 7), tenants);
+    }
+
+    @Test
+    void queryList_thenConcatOrMergeShards() {
+        List<Integer> ids = sharded.queryList("SELECT id FROM ACCOUNT ORDER BY id", (rs, n) -> rs.getInt(1));
+        Assertions.assertEquals(Arrays.asList(3, 6, 9, 1, 4, 7, 2, 5, 8), ids);
+
+        List<Integer> ordered = sharded.queryListOrdered("SELECT id FROM ACCOUNT WHERE id > ? ORDER BY id DESC",
+                Comparator.reverseOrder(), (rs, n) -> rs.getInt(1), 2);
+        Assertions.assertEquals(Arrays.asList(9, 8, 7, 6, 5, 4, 3), ordered);
+
+        List<Map<String, Object>> rows = sharded.queryAssocOrdered("SELECT id FROM ACCOUNT ORDER BY id",
+                Comparator.comparing(row -> (Integer) row.get("ID")));
+        Assertions.assertEquals(9, rows.size());
+        Assertions.assertEquals(1, rows.get(0).get("ID"));
+        Assertions.assertEquals(9, rows.get(8).get("ID"));
+    }
+
+    @Test
+    void queryList_thenQueryShardsInParallel() {
+        long started = System.nanoTime();
+        List<Map<String, Object>> rows = sharded.queryAssoc("SELECT SLEEP(300)");
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        Assertions.assertEquals(3, rows.size());
+        Assertions.assertTrue(millis < 800, "Shards were queried sequentially: " + millis + " ms");
+    }
+
+    @Test
+    void queryList_whenShardFails_thenThrow() {
+        sharded.shard(2).update("CREATE TABLE ONLY_ONE(id INT)");
+        try {
+            Assertions.assertThrows(EasySqlException.class, () -> sharded.queryAssoc("SELECT * FROM ONLY_ONE"));
+        } finally {
+            sharded.shard(2).update("DROP TABLE ONLY_ONE");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.cache;
+
+import org.bobachenko.easyjdbc.EasyJdbc;
+import org.bobachenko.easyjdbc.NamedParameters;
+import org.bobachenko.easyjdbc.datasource.EasyDataSource;
+import org.bobachenko.easyjdbc.mapper.RowMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class CachingEasyJdbcTest {
+
+    private static final String DB_DRIVER = "org.h2.Driver";
+    private static final String DB_CONNECTION = "jdbc:h2:mem:cache_test;DB_CLOSE_DELAY=-1";
+
+    /*
+                mutable bean of parameters
+     */
+    public static class CountryFilter {
+        private String code;
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+    }
+
+    private EasyJdbc jdbc;
+    private CachingEasyJdbc cached;
+
+    @BeforeEach
+    void beforeEachTest() {
+        DataSource dataSource = EasyDataSource.of(DB_DRIVER, DB_CONNECTION, "", "");
+        jdbc = EasyJdbc.of(dataSource);
+        jdbc.update("CREATE TABLE COUNTRY(code VARCHAR(2) PRIMARY KEY, name VARCHAR(255))");
+        jdbc.update("CREATE TABLE CITY(name VARCHAR(255), country VARCHAR(2))");
+        jdbc.update("INSERT INTO COUNTRY VALUES ('FR', 'France'), ('DE', 'Germany')");
+        jdbc.update("INSERT INTO CITY VALUES ('Paris', 'FR')");
+
+        cached = CachingEasyJdbc.builder(jdbc).maximumSize(100).build();
+    }
+
+    @AfterEach
+    void afterEachTest() {
+        jdbc.update("DROP TABLE COUNTRY");
+        jdbc.update("DROP TABLE CITY");
+    }
+
+    @Test
+    void query_thenReturnCachedResult() {
+        RowMapper<String> name = (rs, n) -> rs.getString(1);
+        List<String> first = cached.queryList("SELECT name FROM COUNTRY ORDER BY code", name);
+        jdbc.update("DELETE FROM COUNTRY");
+        List<String> second = cached.queryList("SELECT name FROM COUNTRY ORDER BY code", name);
+
+        Assertions.assertEquals(Arrays.asList("Germany", "France"), second);
+        Assertions.assertSame(first, second);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> second.add("Spain"));
+
+        Assertions.assertEquals(1, cached.getStatistics().getHits());
+        Assertions.assertEquals(1, cached.getStatistics().getMisses());
+        Assertions.assertEquals(0.5, cached.getStatistics().getHitRatio());
+    }
+
+    @Test
+    void query_whenNewMapperForEveryCall_thenMiss() {
+        for (int i = 0; i < 2; i++) {
+            String prefix = "country ";
+            cached.queryList("SELECT name FROM COUNTRY", (rs, n) -> prefix + rs.getString(1));
+        }
+        Assertions.assertEquals(0, cached.getStatistics().getHits());
+        Assertions.assertEquals(2, cached.size());
+
+        RowMapper<String> stable = (rs, n) -> rs.getString(1);
+        for (int i = 0; i < 2; i++)
+            cached.queryList("SELECT name FROM COUNTRY", stable);
+        Assertions.assertEquals(1, cached.getStatistics().getHits());
+    }
+
+    @Test
+    void query_thenKeyOnParameters() {
+        Assertions.assertEquals("France", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = ?",
+                String.class, "FR").get());
+        Assertions.assertEquals("Germany", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = ?",
+                String.class, "DE").get());
+        Assertions.assertEquals(2, cached.getStatistics().getMisses());
+        Assertions.assertEquals(2, cached.size());
+    }
+
+    @Test
+    void query_whenNamedParametersChanged_thenKeepCachedKey() {
+        NamedParameters params = NamedParameters.of("code", "FR");
+        Assertions.assertEquals("France", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, params).get());
+
+        params.with("code", "DE");
+        Assertions.assertEquals("Germany", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, params).get());
+        Assertions.assertEquals("France", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, NamedParameters.of("code", "FR")).get());
+        Assertions.assertEquals(2, cached.getStatistics().getMisses());
+        Assertions.assertEquals(1, cached.getStatistics().getHits());
+    }
+
+    @Test
+    void query_whenBeanOfNamedParametersChanged_thenKeyOnNewValues() {
+        CountryFilter filter = new CountryFilter();
+        filter.setCode("FR");
+        NamedParameters params = NamedParameters.of(filter);
+        Assertions.assertEquals("France", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, params).get());
+
+        filter.setCode("DE");
+        Assertions.assertEquals("Germany", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, params).get());
+
+        filter.setCode("FR");
+        Assertions.assertEquals("France", cached.queryScalar("SELECT name FROM COUNTRY WHERE code = :code",
+                String.class, params).get());
+        Assertions.assertEquals(2, cached.getStatistics().getMisses());
+        Assertions.assertEquals(1, cached.getStatistics().getHits());
+    }
+
+    @Test
+    void update_thenInvalidateOnlyModifiedTable() {
+        cached.queryLong("SELECT COUNT(*) FROM COUNTRY");
+        cached.queryLong("SELECT COUNT(*) FROM CITY c JOIN COUNTRY k ON c.country = k.code");
+        cached.queryLong("SELECT COUNT(*) FROM CITY");
+
+        cached.update("INSERT INTO country (code, name) VALUES (?, ?)", "ES", "Spain");
+
+        Assertions.assertEquals(3, cached.queryLong("SELECT COUNT(*) FROM COUNTRY").getAsLong());
+        Assertions.assertEquals(1, cached.queryLong("SELECT COUNT(*) FROM CITY").getAsLong());
+        cached.queryLong("SELECT COUNT(*) FROM CITY c JOIN COUNTRY k ON c.country = k.code");
+
+        Assertions.assertEquals(1, cached.getStatistics().getHits());
+        Assertions.assertEquals(2, cached.getStatistics().getExpirations());
+    }
+
+    @Test
+    void ttl_thenExpireResult() throws InterruptedException {
+        CachingEasyJdbc shortLived = cached.withTtl(10, TimeUnit.MILLISECONDS);
+        shortLived.queryLong("SELECT COUNT(*) FROM COUNTRY");
+        jdbc.update("DELETE FROM COUNTRY");
+        Thread.sleep(20);
+
+        Assertions.assertEquals(0, shortLived.queryLong("SELECT COUNT(*) FROM COUNTRY").getAsLong());
+        Assertions.assertEquals(1, cached.getStatistics().getExpirations());
+    }
+
+    @Test
+    void maximumSize_thenEvictLeastRecentlyUsed() {
+        CachingEasyJdbc small = CachingEasyJdbc.builder(jdbc).maximumSize(1).build();
+        small.queryLong("SELECT COUNT(*) FROM COUNTRY");
+        small.queryLong("SELECT COUNT(*) FROM CITY");
+
+        Assertions.assertEquals(1, small.size());
+        Assertions.assertEquals(1, small.getStatistics().getEvictions());
+    }
+
+    @Test
+    void sqlTables() {
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("A", "B", "C", "D")), SqlTables.read(
+                "SELECT * FROM app.a x, \"B\" AS y JOIN c ON x.id = c.id WHERE x.id IN (SELECT id FROM d) " +
+                        "AND x.name <> 'FROM e' -- JOIN f"));
+        Assertions.assertEquals(Collections.emptySet(), SqlTables.read("SELECT X FROM SYSTEM_RANGE(1, 10)"));
+        Assertions.assertEquals(Collections.singleton("A"), SqlTables.written("insert into a (id) values (?)"));
+        Assertions.assertEquals(Collections.singleton("A"), SqlTables.written("UPDATE a SET id = 1"));
+        Assertions.assertEquals(Collections.singleton("A"), SqlTables.written("DELETE FROM public.a"));
+        Assertions.assertNull(SqlTables.written("CREATE TABLE a (id INT)"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+class EasyPooledDataSourceTest {
+
+    private static final String DB_DRIVER = "org.h2.Driver";
+    private static final String DB_CONNECTION = "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1";
+
+    private EasyPooledDataSource pool;
+
+    @BeforeEach
+    void beforeEachTest() {
+        pool = EasyPooledDataSource.builder(DB_DRIVER, DB_CONNECTION, "", "")
+                .maxSize(2)
+                .acquireTimeout(100)
+                .build();
+    }
+
+    @AfterEach
+    void afterEachTest() {
+        pool.close();
+    }
+
+    @Test
+    void getConnection_thenReusePhysicalConnection() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+
+        Connection second = pool.getConnection();
+        Assertions.assertSame(physical, second.unwrap(Connection.class));
+        second.close();
+
+        Assertions.assertEquals(1, pool.getTotalConnections());
+        Assertions.assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    void unwrap_thenAnswerForThePool() throws SQLException {
+        Assertions.assertTrue(pool.isWrapperFor(DataSource.class));
+        Assertions.assertFalse(pool.isWrapperFor(Connection.class));
+        Assertions.assertSame(pool, pool.unwrap(EasyPooledDataSource.class));
+        Assertions.assertThrows(SQLException.class, () -> pool.unwrap(Connection.class));
+    }
+
+    @Test
+    void getConnection_thenTimeoutWhenPoolIsExhausted() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+
+        Assertions.assertEquals(2, pool.getActiveConnections());
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+
+        first.close();
+        second.close();
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    void close_thenResetStateOfConnection() throws SQLException {
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        connection.close();
+
+        Assertions.assertTrue(connection.isClosed());
+        Assertions.assertThrows(SQLException.class, connection::createStatement);
+
+        Connection reused = pool.getConnection();
+        Assertions.assertTrue(reused.getAutoCommit());
+        Assertions.assertFalse(reused.isReadOnly());
+        reused.close();
+    }
+
+    @Test
+    void maxLifetime_thenReplaceExpiredConnection() throws SQLException, InterruptedException {
+        EasyPooledDataSource shortLived = EasyPooledDataSource.builder(DB_DRIVER, DB_CONNECTION, "", "")
+                .maxLifetime(10)
+                .build();
+
+        Connection first = shortLived.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+
+        Thread.sleep(20);
+
+        Connection second = shortLived.getConnection();
+        Assertions.assertNotSame(physical, second.unwrap(Connection.class));
+        Assertions.assertTrue(physical.isClosed());
+        second.close();
+        shortLived.close();
+    }
+}
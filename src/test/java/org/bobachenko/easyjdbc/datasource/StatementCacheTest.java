@@ -0,0 +1,128 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class StatementCacheTest {
+
+    private static final String DB_CONNECTION = "jdbc:h2:mem:statement_cache_test";
+
+    private Connection physical;
+    private Connection connection;
+    private StatementCacheStatistics statistics;
+
+    @BeforeEach
+    void beforeEachTest() throws SQLException {
+        physical = DriverManager.getConnection(DB_CONNECTION);
+        statistics = new StatementCacheStatistics();
+        connection = StatementCache.wrap(physical, 2, statistics);
+    }
+
+    @AfterEach
+    void afterEachTest() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void prepareStatement_thenReuseClosedStatement() throws SQLException {
+        PreparedStatement first = connection.prepareStatement("SELECT ?");
+        first.setInt(1, 1);
+        first.executeQuery();
+        first.close();
+
+        PreparedStatement second = connection.prepareStatement("SELECT ?");
+        Assertions.assertSame(first, second);
+        second.setInt(1, 2);
+        try (ResultSet rs = second.executeQuery()) {
+            Assertions.assertTrue(rs.next());
+            Assertions.assertEquals(2, rs.getInt(1));
+        }
+        second.close();
+
+        Assertions.assertEquals(1, statistics.getHits());
+        Assertions.assertEquals(1, statistics.getMisses());
+    }
+
+    @Test
+    void prepareStatement_thenDistinguishGeneratedKeysMode() throws SQLException {
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS).close();
+
+        Assertions.assertEquals(0, statistics.getHits());
+        Assertions.assertEquals(2, statistics.getMisses());
+    }
+
+    @Test
+    void prepareStatementInUse_thenPrepareNewOne() throws SQLException {
+        PreparedStatement first = connection.prepareStatement("SELECT 1");
+        PreparedStatement second = connection.prepareStatement("SELECT 1");
+
+        Assertions.assertNotSame(first, second);
+        second.close();
+        Assertions.assertTrue(second.isClosed());
+        first.close();
+    }
+
+    @Test
+    void prepareStatement_thenEvictLeastRecentlyUsed() throws SQLException {
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 2").close();
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 3").close();
+
+        Assertions.assertEquals(1, statistics.getEvictions());
+
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 2").close();
+        Assertions.assertEquals(2, statistics.getHits());
+        Assertions.assertEquals(4, statistics.getMisses());
+    }
+
+    @Test
+    void closeStatement_thenResetSettingsForNextUser() throws SQLException {
+        PreparedStatement first = connection.prepareStatement("SELECT 1");
+        int maxRows = first.getMaxRows();
+        int queryTimeout = first.getQueryTimeout();
+        first.setMaxRows(5);
+        first.setQueryTimeout(7);
+        first.close();
+
+        PreparedStatement second = connection.prepareStatement("SELECT 1");
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(maxRows, second.getMaxRows());
+        Assertions.assertEquals(queryTimeout, second.getQueryTimeout());
+        second.close();
+    }
+}
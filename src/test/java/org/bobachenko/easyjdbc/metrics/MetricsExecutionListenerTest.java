@@ -0,0 +1,172 @@
+/*
+Copyright (c) 2018 Maxim Bobachenko  Contacts: <max@bobachenko.org>
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.bobachenko.easyjdbc.metrics;
+
+import org.bobachenko.easyjdbc.EasyJdbc;
+import org.bobachenko.easyjdbc.ExecutionListener;
+import org.bobachenko.easyjdbc.ExecutionPhase;
+import org.bobachenko.easyjdbc.ExecutionTrace;
+import org.bobachenko.easyjdbc.datasource.EasyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+class MetricsExecutionListenerTest {
+
+    private static final String DB_DRIVER = "org.h2.Driver";
+    private static final String DB_CONNECTION = "jdbc:h2:mem:metrics_test;DB_CLOSE_DELAY=-1";
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    void beforeEachTest() {
+        dataSource = EasyDataSource.of(DB_DRIVER, DB_CONNECTION, "", "");
+        EasyJdbc.of(dataSource).update("CREATE TABLE ITEM(id INT PRIMARY KEY, name VARCHAR(255))");
+    }
+
+    @AfterEach
+    void afterEachTest() {
+        EasyJdbc.of(dataSource).update("DROP TABLE ITEM");
+    }
+
+    @Test
+    void listener_thenReportPhasesInOrder() {
+        List<ExecutionPhase> phases = new ArrayList<>();
+        List<ExecutionTrace> traces = new ArrayList<>();
+        EasyJdbc jdbc = EasyJdbc.of(dataSource, new ExecutionListener() {
+            @Override
+            public void onPhase(ExecutionTrace trace, ExecutionPhase phase, long nanos) {
+                phases.add(phase);
+            }
+
+            @Override
+            public void onComplete(ExecutionTrace trace) {
+                traces.add(trace);
+            }
+        });
+
+        jdbc.queryList("SELECT * FROM ITEM WHERE id > ?", (rs, n) -> rs.getInt(1), 0);
+
+        Assertions.assertEquals(Arrays.asList(ExecutionPhase.ACQUIRE, ExecutionPhase.PREPARE,
+                ExecutionPhase.EXECUTE, ExecutionPhase.MAP, ExecutionPhase.CLOSE), phases);
+        Assertions.assertEquals(1, traces.size());
+        Assertions.assertEquals("SELECT * FROM ITEM WHERE id > ?", traces.get(0).getSql());
+        Assertions.assertTrue(traces.get(0).getNanos(ExecutionPhase.EXECUTE) > 0);
+        Assertions.assertNull(traces.get(0).getError());
+    }
+
+    @Test
+    void metrics_thenGroupByFingerprint() {
+        MetricsExecutionListener listener = MetricsExecutionListener.of();
+        EasyJdbc jdbc = EasyJdbc.of(dataSource, listener);
+
+        jdbc.update("INSERT INTO ITEM VALUES (1, 'one')");
+        jdbc.update("INSERT INTO ITEM VALUES (2, 'two')");
+        jdbc.update("insert into ITEM values (?, ?)", 3, "three");
+        Assertions.assertThrows(RuntimeException.class, () -> jdbc.update("INSERT INTO ITEM VALUES (1, 'one')"));
+
+        QueryMetrics inserts = listener.getMetrics("INSERT INTO ITEM VALUES (5, 'five')");
+        Assertions.assertEquals("INSERT INTO ITEM VALUES (?)", inserts.getFingerprint());
+        Assertions.assertEquals(4, inserts.getCount());
+        Assertions.assertEquals(1, inserts.getErrorCount());
+        Assertions.assertEquals(1, listener.getMetrics().size());
+        Assertions.assertTrue(inserts.getTotalNanos(ExecutionPhase.EXECUTE) > 0);
+        Assertions.assertTrue(inserts.getLatency().getValueAtPercentile(100) > 0);
+    }
+
+    @Test
+    void metrics_thenLimitNumberOfGroups() {
+        MetricsExecutionListener listener = MetricsExecutionListener.builder().maxQueries(1).build();
+        EasyJdbc jdbc = EasyJdbc.of(dataSource, listener);
+
+        jdbc.queryLong("SELECT COUNT(*) FROM ITEM");
+        jdbc.queryLong("SELECT MAX(id) FROM ITEM");
+        jdbc.queryLong("SELECT MIN(id) FROM ITEM");
+
+        Assertions.assertEquals(2, listener.getMetrics().size());
+        Assertions.assertNull(listener.getMetrics("SELECT MIN(id) FROM ITEM"));
+        Assertions.assertEquals(2, listener.getMetrics().stream()
+                .filter(metrics -> metrics.getFingerprint().equals(MetricsExecutionListener.OTHER))
+                .mapToLong(QueryMetrics::getCount).sum());
+    }
+
+    @Test
+    void slowQuery_thenLogTimings() {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(MetricsExecutionListener.class.getName());
+        logger.addHandler(handler);
+        EasyJdbc.of(dataSource).update("CREATE ALIAS SLEEP FOR \"java.lang.Thread.sleep(long)\"");
+        try {
+            EasyJdbc jdbc = EasyJdbc.of(dataSource, MetricsExecutionListener.builder().slowQueryThreshold(100).build());
+            jdbc.queryLong("SELECT COUNT(*) FROM ITEM");
+            Assertions.assertEquals(0, records.size());
+
+            jdbc.update("CALL SLEEP(150)");
+            Assertions.assertEquals(1, records.size());
+            Assertions.assertTrue(records.get(0).getMessage().contains("execute="));
+        } finally {
+            logger.removeHandler(handler);
+            EasyJdbc.of(dataSource).update("DROP ALIAS SLEEP");
+        }
+    }
+
+    @Test
+    void histogram_thenKeepRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++)
+            histogram.record(value * 1000);
+
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(1_000_000, histogram.getMaxNanos());
+        Assertions.assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 * 0.032);
+        Assertions.assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 * 0.032);
+        Assertions.assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+
+        for (long value = 0; value < 1L << 40; value = value * 3 + 1)
+            Assertions.assertTrue(LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value)) >= value);
+    }
+}